@@ -0,0 +1,24 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    jmh(project(":gateway-scripting-groovy"))
+    jmh("org.springframework:spring-test")
+    jmh(rootProject.libs.nimbus.jose.jwt)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    benchmarkMode.add("thrpt")
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
+
+// Benchmarks are only run locally, so they are never published with the libraries.
+tasks.withType<AbstractPublishToMaven>().configureEach {
+    enabled = false
+}
@@ -0,0 +1,239 @@
+package org.nbreval.spring.cloud.gateway.scripting.benchmarks;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Benchmarks of the hot path of the Groovy scripting filter, running the filter of a route for a
+ * new exchange in each invocation, like the gateway does for each request. Run them with {@code
+ * ./gradlew :gateway-scripting-benchmarks:jmh}, which also reports the allocation rate with the gc
+ * profiler.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScriptingFilterBenchmark {
+
+  /** Maximum number of idle script instances reused between requests. */
+  @Param({"0", "64"})
+  public int scriptPoolSize;
+
+  /** Enables the static compilation of the scripts. */
+  @Param({"false", "true"})
+  public boolean compileStatic;
+
+  private GatewayFilter headersFilter;
+
+  private GatewayFilter queryParamsFilter;
+
+  private GatewayFilter claimsFilter;
+
+  private GatewayFilter shortCircuitFilter;
+
+  private GatewayFilter shortCircuitResponseFilter;
+
+  private GatewayFilter pipelineFilter;
+
+  private GatewayFilter chainedFilters;
+
+  private MockServerHttpRequest request;
+
+  private static final String HEADERS_SCRIPT =
+      """
+      request.setHeader("X-User", request.getFirstHeader("X-Input"))
+      request.removeHeader("X-Input")
+      request
+      """;
+
+  private static final String QUERY_PARAMS_SCRIPT =
+      """
+      request.setQueryParam("api_key", "secret")
+      request.setQueryParam("page", request.getFirstQueryParam("p"))
+      request.removeQueryParam("p")
+      request
+      """;
+
+  /** Last chain which ends the filter, keeping the exchange so the benchmark can return it. */
+  private static final class CapturingChain implements GatewayFilterChain {
+    private ServerWebExchange exchange;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange) {
+      this.exchange = exchange;
+      return Mono.empty();
+    }
+  }
+
+  @Setup
+  public void setup() throws JOSEException {
+    var filterFactory = new GroovyScriptingFilterFactory();
+
+    headersFilter = filterFactory.apply(config(HEADERS_SCRIPT));
+
+    queryParamsFilter = filterFactory.apply(config(QUERY_PARAMS_SCRIPT));
+
+    claimsFilter =
+        filterFactory.apply(
+            config(
+                """
+                if (request.getClaim("user_context.groups.1") == "editor") {
+                    request.setHeader("X-User", (String) request.getClaim("sub"))
+                }
+                request
+                """));
+
+    shortCircuitFilter =
+        filterFactory.apply(
+            config(
+                """
+                if (request.getFirstHeader("X-Api-Key") != "secret") {
+                    response.consume(401, "Unauthorized")
+                }
+                request
+                """));
+
+    shortCircuitResponseFilter =
+        filterFactory.apply(
+            config(
+                """
+                if (request.getFirstHeader("X-Api-Key") != "secret") {
+                    return response.status(401).json([error: "Unauthorized"])
+                }
+                request
+                """));
+
+    var pipelineConfig = config(null);
+    pipelineConfig.setScripts(List.of(HEADERS_SCRIPT, QUERY_PARAMS_SCRIPT));
+    pipelineFilter = filterFactory.apply(pipelineConfig);
+
+    var headersStage = filterFactory.apply(config(HEADERS_SCRIPT));
+    var queryParamsStage = filterFactory.apply(config(QUERY_PARAMS_SCRIPT));
+    chainedFilters =
+        (exchange, chain) ->
+            headersStage.filter(exchange, ex -> queryParamsStage.filter(ex, chain));
+
+    request =
+        MockServerHttpRequest.get("/api/test?p=1&q=search")
+            .header("X-Input", "A")
+            .header("Authorization", "Bearer " + token())
+            .build();
+  }
+
+  @Benchmark
+  public ServerWebExchange headers() {
+    return run(headersFilter);
+  }
+
+  @Benchmark
+  public ServerWebExchange queryParams() {
+    return run(queryParamsFilter);
+  }
+
+  @Benchmark
+  public ServerWebExchange claims() {
+    return run(claimsFilter);
+  }
+
+  @Benchmark
+  public ServerWebExchange shortCircuit() {
+    var chain = new CapturingChain();
+    shortCircuitFilter
+        .filter(MockServerWebExchange.from(request), chain)
+        .onErrorComplete(ScriptingFilterBenchmark::isUnauthorized)
+        .block();
+    return chain.exchange;
+  }
+
+  @Benchmark
+  public ServerWebExchange shortCircuitResponse() {
+    return run(shortCircuitResponseFilter);
+  }
+
+  @Benchmark
+  public ServerWebExchange pipeline() {
+    return run(pipelineFilter);
+  }
+
+  @Benchmark
+  public ServerWebExchange chainedFilters() {
+    return run(chainedFilters);
+  }
+
+  /**
+   * Runs a filter for a new exchange.
+   *
+   * @param filter Filter to run.
+   * @return The exchange received by the end of the chain, or null if the filter stopped it.
+   */
+  private ServerWebExchange run(GatewayFilter filter) {
+    var chain = new CapturingChain();
+    filter.filter(MockServerWebExchange.from(request), chain).block();
+    return chain.exchange;
+  }
+
+  /**
+   * Checks if an error is the one produced by <i>response.consume(401, ...)</i>. Any other error
+   * fails the benchmark, instead of being measured as a short-circuited request.
+   *
+   * @param e Error produced by the filter.
+   * @return True if it's the expected response status exception, else false.
+   */
+  private static boolean isUnauthorized(Throwable e) {
+    return e instanceof ResponseStatusException responseException
+        && responseException.getStatusCode().value() == 401;
+  }
+
+  /**
+   * Generates the configuration of a filter with the benchmark's parameters.
+   *
+   * @param script Content of the script.
+   * @return The configuration of the filter.
+   */
+  private ScriptingFilterConfig config(String script) {
+    var config = new ScriptingFilterConfig(script);
+    config.setScriptPoolSize(scriptPoolSize);
+    config.setCompileStatic(compileStatic);
+    return config;
+  }
+
+  /**
+   * Generates the JWT sent in the authorization header.
+   *
+   * @return The JWT, as a string.
+   * @throws JOSEException If occurs any exception during token generation.
+   */
+  private static String token() throws JOSEException {
+    var claimsSet =
+        new JWTClaimsSet.Builder()
+            .subject("test")
+            .claim("user_context", Map.of("id", "user-123", "groups", List.of("admin", "editor")))
+            .build();
+
+    var signer = new MACSigner("8c423e0120437e570427de7a1235d5a57f0091c558ea8f6fd4ae595a351fda12");
+    var signedJwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claimsSet);
+    signedJwt.sign(signer);
+
+    return signedJwt.serialize();
+  }
+}
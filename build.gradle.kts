@@ -45,6 +45,13 @@ subprojects {
         useJUnitPlatform()
     }
 
+    // The implementation version is part of the key of compiled scripts, so it must be in the jar.
+    tasks.withType<Jar> {
+        manifest {
+            attributes("Implementation-Title" to project.name, "Implementation-Version" to project.version)
+        }
+    }
+
     spotless {
         java {
             googleJavaFormat(libs.versions.googleJavaFormat.get().toString())
@@ -1,4 +1,5 @@
-
 dependencies {
     implementation(rootProject.libs.nimbus.jose.jwt)
-}
\ No newline at end of file
+    implementation(rootProject.libs.jackson.core)
+    compileOnly(rootProject.libs.micrometer.core)
+}
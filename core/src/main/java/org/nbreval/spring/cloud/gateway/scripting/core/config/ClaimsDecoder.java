@@ -0,0 +1,18 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.config;
+
+/** Modes available to read the claims of the JWT in the authorization header of requests. */
+public enum ClaimsDecoder {
+
+  /**
+   * The whole token is parsed the first time a claim is read, and its claims are cached between
+   * requests, so it fits routes where the same tokens are received many times.
+   */
+  FULL,
+
+  /**
+   * Only the payload of the token is decoded, and each claim is read with a streaming parser which
+   * stops when the claim is found. It fits routes which read a few claims of tokens that are rarely
+   * repeated.
+   */
+  LAZY
+}
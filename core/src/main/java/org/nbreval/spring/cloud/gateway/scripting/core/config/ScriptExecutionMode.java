@@ -0,0 +1,23 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.config;
+
+/** Modes available to choose the thread where the script of a filter is run. */
+public enum ScriptExecutionMode {
+
+  /**
+   * The script is run on the thread which receives the request, usually a Netty event loop thread.
+   * It's the cheapest mode, but only fits scripts which don't block or take long time to run.
+   */
+  INLINE,
+
+  /**
+   * The script is run on a new virtual thread, so slow or blocking scripts don't stall the event
+   * loop, and then the filter chain is resumed.
+   */
+  VIRTUAL_THREAD,
+
+  /**
+   * The script is run on Reactor's bounded elastic scheduler, which limits the number of threads
+   * and queued tasks, and then the filter chain is resumed.
+   */
+  BOUNDED_ELASTIC
+}
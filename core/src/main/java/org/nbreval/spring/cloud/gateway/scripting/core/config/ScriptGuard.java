@@ -0,0 +1,111 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.config;
+
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapper;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.NonNull;
+
+/**
+ * Condition which a request must meet to run the filter's script, checked before running it. All
+ * the properties set in a guard must match, and requests which don't match bypass the script, as if
+ * the filter was not configured in the route.
+ */
+public class ScriptGuard {
+
+  /** Header which the request must have. */
+  private String header;
+
+  /** Value which the header must have, or null if it only must be present. */
+  private String value;
+
+  /** Prefix of the request's path, like <i>/api/v2/</i>. */
+  private String pathPrefix;
+
+  /** HTTP method of the request, case insensitive. */
+  private String method;
+
+  /** Path of a claim of the request's JWT which must be present, like <i>user.roles</i>. */
+  private String claim;
+
+  /**
+   * Checks if the guard has, at least, one condition, and all of its properties are consistent.
+   *
+   * @throws IllegalArgumentException If the guard is not valid.
+   */
+  public void validate() {
+    if (header == null && value != null) {
+      throw new IllegalArgumentException("The value of a guard requires its header");
+    } else if (header == null && pathPrefix == null && method == null && claim == null) {
+      throw new IllegalArgumentException("A guard must have, at least, one condition");
+    }
+  }
+
+  /**
+   * Checks if a request meets the guard. Conditions are checked from the cheapest one to the most
+   * expensive one, so the token is only read if the rest of conditions match.
+   *
+   * @param request Request to check.
+   * @param wrappedRequest Wrapper of the request, used to read the claims of its JWT, which is
+   *     passed to the script after the guards, or null if the guard doesn't check claims.
+   * @return True if the request meets all conditions of the guard, else false.
+   */
+  public boolean matches(@NonNull ServerHttpRequest request, RequestWrapper wrappedRequest) {
+    if (method != null && !method.equalsIgnoreCase(request.getMethod().name())) {
+      return false;
+    }
+
+    if (pathPrefix != null
+        && !request.getPath().pathWithinApplication().value().startsWith(pathPrefix)) {
+      return false;
+    }
+
+    if (header != null) {
+      var headerValue = request.getHeaders().getFirst(header);
+
+      if (headerValue == null || (value != null && !value.equals(headerValue))) {
+        return false;
+      }
+    }
+
+    return claim == null || wrappedRequest.getClaim(claim) != null;
+  }
+
+  public String getHeader() {
+    return header;
+  }
+
+  public void setHeader(String header) {
+    this.header = header;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public void setValue(String value) {
+    this.value = value;
+  }
+
+  public String getPathPrefix() {
+    return pathPrefix;
+  }
+
+  public void setPathPrefix(String pathPrefix) {
+    this.pathPrefix = pathPrefix;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public void setMethod(String method) {
+    this.method = method;
+  }
+
+  public String getClaim() {
+    return claim;
+  }
+
+  public void setClaim(String claim) {
+    this.claim = claim;
+  }
+}
@@ -1,35 +1,324 @@
 package org.nbreval.spring.cloud.gateway.scripting.core.config;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
 import org.nbreval.spring.cloud.gateway.scripting.core.util.file.FileManager;
 import org.nbreval.spring.cloud.gateway.scripting.core.util.validation.PathValidator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatus;
 
 /**
  * Configuration required for {@link
  * org.nbreval.spring.cloud.gateway.scripting.core.filter.AbstractScriptingFilterFactory}
  */
-public class ScriptingFilterConfig {
+public class ScriptingFilterConfig implements HasRouteId {
+
+  /** Identifier of the route which uses the filter, set by Spring Cloud Gateway. */
+  private String routeId;
 
   /** Contains the path, or content, of the script to be used to filter requests. */
   private String scriptOrPath;
 
+  /**
+   * Paths, or contents, of the scripts run in order as the stages of a pipeline, instead of a
+   * single script. All of them are compiled with the rest of options of this configuration.
+   */
+  private List<String> scripts = List.of();
+
+  /**
+   * Conditions which requests must meet to run the script, checked without running it. Requests
+   * which don't meet all of them bypass the script. By default, the script is run for all requests.
+   */
+  private List<ScriptGuard> guards = List.of();
+
+  /**
+   * Maximum number of idle script instances kept to be reused between requests, instead of creating
+   * a new one for each request. Zero, the default value, disables the reuse of instances.
+   */
+  private int scriptPoolSize;
+
+  /**
+   * Enables the static compilation of the script, for languages which support it. Scripts compiled
+   * this way must be fully typed, but they avoid the dynamic dispatch of each call.
+   */
+  private boolean compileStatic;
+
+  /** Thread where the script is run. By default, it's run on the thread receiving the request. */
+  private ScriptExecutionMode executionMode = ScriptExecutionMode.INLINE;
+
+  /**
+   * Maximum time a single execution of the script can take. When it's exceeded, the script is
+   * interrupted and the request fails with {@link ScriptingFilterConfig#timeoutStatus}. By default,
+   * there is no limit.
+   */
+  private Duration timeout;
+
+  /** HTTP status code returned when the script exceeds its timeout. */
+  private int timeoutStatus = HttpStatus.GATEWAY_TIMEOUT.value();
+
+  /**
+   * Directory used to store the bytecode of compiled scripts, for languages compiled to bytecode,
+   * so they aren't compiled again after a restart. By default, the bytecode is not stored.
+   */
+  private String bytecodeCacheDirectory;
+
+  /**
+   * Enables the reload of the script when it's a file in the file system and the file changes.
+   * Disabled by default.
+   */
+  private boolean hotReload;
+
+  /** Mode used to read the claims of the request's JWT. By default, the whole token is parsed. */
+  private ClaimsDecoder claimsDecoder = ClaimsDecoder.FULL;
+
+  /**
+   * Location of the JWKS used to verify the signature of the request's JWT, as a file system path
+   * or a classpath path with prefix "classpath:". By default, tokens are not verified.
+   */
+  private String jwksLocation;
+
+  /** Time between reloads of the JWKS. */
+  private Duration jwksReloadInterval = Duration.ofMinutes(5);
+
+  /**
+   * Maximum size, in bytes, of the body buffered for scripts which read it. Requests with a bigger
+   * body fail with status 413, and responses with status 502. By default, it's 256 KB.
+   */
+  private int maxBodySize = 256 * 1024;
+
+  /** Maximum time to wait for the response of each call made with the script's web client. */
+  private Duration webClientTimeout = Duration.ofSeconds(5);
+
+  /** Maximum number of counters, and of values, kept by the route's shared state. */
+  private int stateMaxEntries = 10000;
+
+  /** Maximum number of responses kept by the route's response cache. */
+  private int cacheMaxEntries = 1000;
+
+  /**
+   * Maximum number of bytes of the bodies kept by the route's response cache. By default, it's 16
+   * MB.
+   */
+  private long cacheMaxBytes = 16L * 1024 * 1024;
+
+  /**
+   * Maximum number of tokens whose claims are kept by the caches of parsed and verified tokens.
+   * Filters with the same settings share the cache of parsed tokens.
+   */
+  private int tokenCacheMaxEntries = 10000;
+
+  /** Maximum time the claims of a token are cached, even if the token has not expired yet. */
+  private Duration tokenCacheTimeToLive = Duration.ofMinutes(5);
+
   public ScriptingFilterConfig() {}
 
   public ScriptingFilterConfig(String scriptOrPath) {
     this.scriptOrPath = scriptOrPath;
   }
 
+  @Override
+  public String getRouteId() {
+    return routeId;
+  }
+
+  @Override
+  public void setRouteId(String routeId) {
+    this.routeId = routeId;
+  }
+
   public String getScript() throws IOException {
     if (PathValidator.isValidRegularPath(scriptOrPath)) {
       return FileManager.getRegularFileContentAsText(scriptOrPath);
     } else if (PathValidator.isValidClasspathPath(scriptOrPath)) {
-      return FileManager.getResourceFileContentAsText(scriptOrPath.replaceFirst("classpath:", ""));
+      return FileManager.getResourceFileContentAsText(
+          scriptOrPath.replaceFirst("classpath:/?", ""));
     } else {
       return scriptOrPath;
     }
   }
 
+  /**
+   * Obtains the path of the script, if it's a file in the file system.
+   *
+   * @return The path of the script's file, or null if the script is not a file in the file system.
+   */
+  public Path getScriptFile() {
+    return PathValidator.isValidRegularPath(scriptOrPath) ? Paths.get(scriptOrPath) : null;
+  }
+
+  public String getScriptOrPath() {
+    return scriptOrPath;
+  }
+
   public void setScriptOrPath(String scriptOrPath) {
     this.scriptOrPath = scriptOrPath;
   }
+
+  public List<String> getScripts() {
+    return scripts;
+  }
+
+  public void setScripts(List<String> scripts) {
+    this.scripts = scripts != null ? scripts : List.of();
+  }
+
+  public List<ScriptGuard> getGuards() {
+    return guards;
+  }
+
+  public void setGuards(List<ScriptGuard> guards) {
+    this.guards = guards != null ? guards : List.of();
+  }
+
+  /**
+   * Generates the configuration of a stage of the pipeline, with the same options as this one.
+   *
+   * @param scriptOrPath Path, or content, of the stage's script.
+   * @return The configuration of the stage.
+   */
+  public ScriptingFilterConfig forStage(String scriptOrPath) {
+    var stageConfig = new ScriptingFilterConfig(scriptOrPath);
+    BeanUtils.copyProperties(this, stageConfig, "scriptOrPath", "scripts");
+    return stageConfig;
+  }
+
+  public int getScriptPoolSize() {
+    return scriptPoolSize;
+  }
+
+  public void setScriptPoolSize(int scriptPoolSize) {
+    this.scriptPoolSize = scriptPoolSize;
+  }
+
+  public boolean isCompileStatic() {
+    return compileStatic;
+  }
+
+  public void setCompileStatic(boolean compileStatic) {
+    this.compileStatic = compileStatic;
+  }
+
+  public ScriptExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  public void setExecutionMode(ScriptExecutionMode executionMode) {
+    this.executionMode = executionMode;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  public int getTimeoutStatus() {
+    return timeoutStatus;
+  }
+
+  public void setTimeoutStatus(int timeoutStatus) {
+    this.timeoutStatus = timeoutStatus;
+  }
+
+  public String getBytecodeCacheDirectory() {
+    return bytecodeCacheDirectory;
+  }
+
+  public void setBytecodeCacheDirectory(String bytecodeCacheDirectory) {
+    this.bytecodeCacheDirectory = bytecodeCacheDirectory;
+  }
+
+  public boolean isHotReload() {
+    return hotReload;
+  }
+
+  public void setHotReload(boolean hotReload) {
+    this.hotReload = hotReload;
+  }
+
+  public ClaimsDecoder getClaimsDecoder() {
+    return claimsDecoder;
+  }
+
+  public void setClaimsDecoder(ClaimsDecoder claimsDecoder) {
+    this.claimsDecoder = claimsDecoder;
+  }
+
+  public String getJwksLocation() {
+    return jwksLocation;
+  }
+
+  public void setJwksLocation(String jwksLocation) {
+    this.jwksLocation = jwksLocation;
+  }
+
+  public Duration getJwksReloadInterval() {
+    return jwksReloadInterval;
+  }
+
+  public void setJwksReloadInterval(Duration jwksReloadInterval) {
+    this.jwksReloadInterval = jwksReloadInterval;
+  }
+
+  public int getMaxBodySize() {
+    return maxBodySize;
+  }
+
+  public void setMaxBodySize(int maxBodySize) {
+    this.maxBodySize = maxBodySize;
+  }
+
+  public Duration getWebClientTimeout() {
+    return webClientTimeout;
+  }
+
+  public void setWebClientTimeout(Duration webClientTimeout) {
+    this.webClientTimeout = webClientTimeout;
+  }
+
+  public int getStateMaxEntries() {
+    return stateMaxEntries;
+  }
+
+  public void setStateMaxEntries(int stateMaxEntries) {
+    this.stateMaxEntries = stateMaxEntries;
+  }
+
+  public int getCacheMaxEntries() {
+    return cacheMaxEntries;
+  }
+
+  public void setCacheMaxEntries(int cacheMaxEntries) {
+    this.cacheMaxEntries = cacheMaxEntries;
+  }
+
+  public long getCacheMaxBytes() {
+    return cacheMaxBytes;
+  }
+
+  public void setCacheMaxBytes(long cacheMaxBytes) {
+    this.cacheMaxBytes = cacheMaxBytes;
+  }
+
+  public int getTokenCacheMaxEntries() {
+    return tokenCacheMaxEntries;
+  }
+
+  public void setTokenCacheMaxEntries(int tokenCacheMaxEntries) {
+    this.tokenCacheMaxEntries = tokenCacheMaxEntries;
+  }
+
+  public Duration getTokenCacheTimeToLive() {
+    return tokenCacheTimeToLive;
+  }
+
+  public void setTokenCacheTimeToLive(Duration tokenCacheTimeToLive) {
+    this.tokenCacheTimeToLive = tokenCacheTimeToLive;
+  }
 }
@@ -8,6 +8,9 @@ import reactor.core.publisher.Mono;
 /**
  * Exception used to wraps another exception and assign it an HTTP error code and a message. It's
  * usefull to force return a different HTTP error code for each exception.
+ *
+ * <p>It doesn't fill its stack trace, since it's thrown by scripts to stop requests, and the
+ * wrapped exception, if any, already has its own one.
  */
 public class HttpResponseWrapperException extends Exception {
   @NonNull private final HttpStatus status;
@@ -16,17 +19,31 @@ public class HttpResponseWrapperException extends Exception {
 
   public HttpResponseWrapperException(
       @NonNull HttpStatus status, String message, Throwable origin) {
+    super(message, origin, false, false);
     this.status = status;
     this.message = message;
     this.origin = origin;
   }
 
+  public HttpStatus getStatus() {
+    return status;
+  }
+
   /**
    * Returns the current exception as a Mono error to be returned as an HTTP error.
    *
    * @return The Mono error with the content of exception.
    */
   public Mono<Void> getAsMonoError() {
-    return Mono.error(new ResponseStatusException(status, message, origin));
+    return Mono.error(getAsResponseStatusException());
+  }
+
+  /**
+   * Returns the current exception as the exception used to return an HTTP error.
+   *
+   * @return The {@link ResponseStatusException} with the content of exception.
+   */
+  public ResponseStatusException getAsResponseStatusException() {
+    return new ResponseStatusException(status, message, origin);
   }
 }
@@ -0,0 +1,195 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ChunkWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseBuilder;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Abstract class used to implement custom script-based gateway filters which transform the
+ * request's body while it's streamed to the downstream service. The script is run for each chunk of
+ * the body, so the memory used is bounded by the size of the chunks instead of the size of the
+ * body.
+ *
+ * <p>Besides <i>request</i> and <i>response</i>, the script receives the chunk to process as
+ * <i>chunk</i>, and a map shared by all chunks of the same request as <i>context</i>. The script
+ * returns the chunk to pass it to the downstream service, or null to drop it. After the last chunk,
+ * the script is run once more with an empty chunk, so it can append content at the end of the body.
+ *
+ * <p>The request's headers are already sent when the body is streamed, so the script can read them,
+ * but its changes are ignored, and errors produced once the downstream service has started
+ * responding can't change the response's status.
+ */
+public abstract class AbstractBodyChunkScriptingFilterFactory
+    extends AbstractScriptingFilterFactory {
+
+  /**
+   * Generates the filter which replaces the request's body with a stream which runs the script for
+   * each chunk. The length of the transformed body is unknown, so requests with a body are sent
+   * chunked.
+   */
+  @Override
+  protected GatewayFilter createFilter(ScriptFilterContext context) {
+    var scheduler = getScheduler(context.config().getExecutionMode());
+    var timeout = context.config().getTimeout();
+
+    return (exchange, chain) -> {
+      var request = exchange.getRequest();
+      var bufferFactory = exchange.getResponse().bufferFactory();
+      var wrappedRequest = getRequestWrapper(context, exchange, null);
+      var headers = getChunkedHeaders(request.getHeaders());
+
+      var transformedRequest =
+          new ServerHttpRequestDecorator(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+              return headers;
+            }
+
+            /**
+             * Obtains the transformed body. Each subscription reads the body from its start, so it
+             * has its own offset and context.
+             */
+            @Override
+            public Flux<DataBuffer> getBody() {
+              return Flux.defer(
+                  () -> {
+                    var chunkContext = new HashMap<String, Object>();
+                    var offset = new long[1];
+
+                    return super.getBody()
+                        .concatMap(
+                            buffer -> {
+                              var chunk = new ChunkWrapper(buffer, bufferFactory, offset[0], false);
+                              offset[0] += buffer.readableByteCount();
+                              return transform(chunk, wrappedRequest, chunkContext);
+                            })
+                        .concatWith(
+                            Mono.defer(
+                                () ->
+                                    transform(
+                                        new ChunkWrapper(
+                                            bufferFactory.allocateBuffer(0),
+                                            bufferFactory,
+                                            offset[0],
+                                            true),
+                                        wrappedRequest,
+                                        chunkContext)));
+                  });
+            }
+
+            /**
+             * Runs the script with a chunk of the body.
+             *
+             * @param chunk Chunk to process.
+             * @param wrappedRequest Wrapper of the request, to read its headers and claims.
+             * @param chunkContext Map shared by all chunks of the request.
+             * @return The chunk to pass to the downstream service, or empty to drop it.
+             */
+            private Mono<DataBuffer> transform(
+                ChunkWrapper chunk,
+                RequestWrapper wrappedRequest,
+                Map<String, Object> chunkContext) {
+              var execution =
+                  Mono.fromCallable(
+                      () -> runChunkScript(context, chunk, wrappedRequest, chunkContext));
+
+              if (scheduler != null) {
+                execution = execution.subscribeOn(scheduler);
+
+                if (timeout != null) {
+                  execution = execution.timeout(timeout);
+                }
+              }
+
+              return execution
+                  .doOnError(e -> chunk.release())
+                  .onErrorMap(
+                      e -> handleScriptError(e, context.metrics(), context.timeoutStatus()));
+            }
+          };
+
+      return chain.filter(exchange.mutate().request(transformedRequest).build());
+    };
+  }
+
+  /**
+   * Obtains the headers of the transformed request. The length of the transformed body is unknown,
+   * so, if the request declares a body, its <i>Content-Length</i> is replaced with
+   * <i>Transfer-Encoding: chunked</i>. Requests without a body, like most GET requests, keep their
+   * headers.
+   *
+   * @param headers Headers of the original request.
+   * @return The headers to send to the downstream service.
+   */
+  private static HttpHeaders getChunkedHeaders(HttpHeaders headers) {
+    if (headers.getContentLength() <= 0 && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+      return headers;
+    }
+
+    var chunkedHeaders = new HttpHeaders();
+    chunkedHeaders.putAll(headers);
+    chunkedHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+    chunkedHeaders.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+    return HttpHeaders.readOnlyHttpHeaders(chunkedHeaders);
+  }
+
+  /**
+   * Runs the script of the filter with a chunk of the request's body.
+   *
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @param chunk Chunk to process.
+   * @param wrappedRequest Wrapper of the request.
+   * @param chunkContext Map shared by all chunks of the request.
+   * @return The chunk to pass to the downstream service, or null to drop it.
+   * @throws Exception If the script code produces an exception, or returns an object which is not
+   *     valid.
+   */
+  private static DataBuffer runChunkScript(
+      ScriptFilterContext context,
+      ChunkWrapper chunk,
+      RequestWrapper wrappedRequest,
+      Map<String, Object> chunkContext)
+      throws Exception {
+    Object result;
+    var start = System.nanoTime();
+
+    try {
+      result =
+          context
+              .scriptManager()
+              .run(
+                  Map.of(
+                      "request", wrappedRequest,
+                      "response", ResponseBuilder.DEFAULT,
+                      "chunk", chunk,
+                      "context", chunkContext,
+                      "state", context.state()));
+    } finally {
+      context.metrics().recordExecution(System.nanoTime() - start);
+    }
+
+    if (result instanceof ChunkWrapper resultChunk) {
+      var buffer = resultChunk.toDataBuffer();
+
+      if (resultChunk != chunk) {
+        chunk.release();
+      }
+
+      return buffer;
+    } else if (result == null) {
+      chunk.release();
+      return null;
+    } else {
+      chunk.release();
+      throw new IllegalStateException("The return object of the script is not valid");
+    }
+  }
+}
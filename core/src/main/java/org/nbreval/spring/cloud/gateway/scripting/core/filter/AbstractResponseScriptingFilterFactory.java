@@ -0,0 +1,226 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.filter;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.nbreval.spring.cloud.gateway.scripting.core.exception.HttpResponseWrapperException;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptFilterMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ShortCircuitResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Abstract class used to implement custom script-based gateway filters which process the response
+ * of the downstream service, instead of the request.
+ *
+ * <p>The script receives the original request as <i>request</i>, only to read it, and a {@link
+ * ResponseWrapper} as <i>response</i>, and returns the response wrapper, or a custom response to
+ * send instead of the downstream service's one. The script is run once, just before the response is
+ * committed, and its status and header changes are applied to the response in the same step, so it
+ * doesn't need other filters to modify the response's headers.
+ *
+ * <p>Only scripts which access the response's body pay the cost of buffering it, up to the
+ * <i>maxBodySize</i> option. The rest of them never delay the body, which is streamed to the client
+ * like without the filter.
+ */
+public abstract class AbstractResponseScriptingFilterFactory
+    extends AbstractScriptingFilterFactory {
+
+  /**
+   * Generates the filter which runs the script with the downstream service's response. The script
+   * is run when the response is written, just before committing it, after buffering the body if the
+   * script accesses it. Responses completed without a body are written as an empty body, so the
+   * script is always run, and its changes applied, in the same path, and the body it sets is never
+   * lost.
+   */
+  @Override
+  protected GatewayFilter createFilter(ScriptFilterContext context) {
+    var maxBodySize = context.config().getMaxBodySize();
+
+    return (exchange, chain) -> {
+      var usesBody = context.scriptManager().usesBody();
+      var executed = new AtomicBoolean();
+
+      var scriptedResponse =
+          new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+              if (!executed.compareAndSet(false, true)) {
+                return super.writeWith(body);
+              } else if (!usesBody) {
+                return process(context, exchange, getDelegate(), null)
+                    .map(replacement -> replaceBody(Flux.from(body), replacement))
+                    .switchIfEmpty(Mono.fromSupplier(() -> super.writeWith(body)))
+                    .flatMap(write -> write);
+              } else if (getHeaders().getContentLength() > maxBodySize) {
+                return Flux.from(body)
+                    .doOnNext(DataBufferUtils::release)
+                    .then(Mono.error(bodyTooLarge(null)));
+              }
+
+              return DataBufferUtils.join(body, maxBodySize)
+                  .defaultIfEmpty(bufferFactory().allocateBuffer(0))
+                  .onErrorMap(
+                      DataBufferLimitException.class,
+                      AbstractResponseScriptingFilterFactory::bodyTooLarge)
+                  .flatMap(buffer -> process(context, exchange, getDelegate(), buffer))
+                  .flatMap(buffer -> super.writeWith(Mono.just(buffer)));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(
+                Publisher<? extends Publisher<? extends DataBuffer>> body) {
+              if (usesBody || !executed.compareAndSet(false, true)) {
+                return writeWith(Flux.from(body).concatMap(Flux::from));
+              }
+
+              return process(context, exchange, getDelegate(), null)
+                  .map(
+                      replacement ->
+                          replaceBody(Flux.from(body).concatMap(Flux::from), replacement))
+                  .switchIfEmpty(Mono.fromSupplier(() -> super.writeAndFlushWith(body)))
+                  .flatMap(write -> write);
+            }
+
+            @Override
+            public Mono<Void> setComplete() {
+              return executed.get() ? super.setComplete() : writeWith(Flux.empty());
+            }
+
+            /**
+             * Discards the downstream service's body, and writes the custom one instead.
+             *
+             * @param body Body of the downstream service's response.
+             * @param replacement Body of the custom response.
+             * @return The result of writing the custom body.
+             */
+            private Mono<Void> replaceBody(Flux<DataBuffer> body, DataBuffer replacement) {
+              return body.doOnNext(DataBufferUtils::release)
+                  .then(super.writeWith(Mono.just(replacement)));
+            }
+          };
+
+      return chain.filter(exchange.mutate().response(scriptedResponse).build());
+    };
+  }
+
+  /**
+   * Generates the error returned when the response's body exceeds the maximum size. A body which is
+   * a single buffer is not limited when it's joined, so responses with a known length are checked
+   * before reading them.
+   *
+   * @param e Exception produced reading the body, if any.
+   * @return The {@link org.springframework.web.server.ResponseStatusException} to return as error.
+   */
+  private static Throwable bodyTooLarge(Throwable e) {
+    return new HttpResponseWrapperException(HttpStatus.BAD_GATEWAY, "Response body too large", e)
+        .getAsResponseStatusException();
+  }
+
+  /**
+   * Runs the script with the response, and applies its changes.
+   *
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @param exchange Exchange with the original request.
+   * @param response Response to process.
+   * @param body Buffered body of the response, or null if the script doesn't access it.
+   * @return The body to write, or empty if the body is not buffered and the script has not replaced
+   *     the response with a custom one.
+   */
+  private static Mono<DataBuffer> process(
+      ScriptFilterContext context,
+      ServerWebExchange exchange,
+      ServerHttpResponse response,
+      DataBuffer body) {
+    var scheduler = getScheduler(context.config().getExecutionMode());
+    var timeout = context.config().getTimeout();
+    var execution =
+        Mono.fromCallable(
+            () ->
+                runResponseScript(
+                    context,
+                    getRequestWrapper(context, exchange, null),
+                    new ResponseWrapper(response, body)));
+
+    if (scheduler != null) {
+      execution = execution.subscribeOn(scheduler);
+
+      if (timeout != null) {
+        execution = execution.timeout(timeout);
+      }
+    }
+
+    return execution
+        .onErrorMap(e -> handleScriptError(e, context.metrics(), context.timeoutStatus()))
+        .switchIfEmpty(Mono.defer(() -> invalidResult(context.metrics())))
+        .flatMap(
+            result -> {
+              if (result instanceof ResponseWrapper wrappedResponse) {
+                return Mono.justOrEmpty(wrappedResponse.applyToResponse());
+              } else if (result instanceof ShortCircuitResponse shortCircuitResponse) {
+                context.metrics().recordShortCircuit(shortCircuitResponse.getStatus());
+                DataBufferUtils.release(body);
+                response.getHeaders().clear();
+                var replacement = shortCircuitResponse.applyTo(response);
+                return Mono.just(
+                    replacement != null ? replacement : response.bufferFactory().allocateBuffer(0));
+              } else {
+                return invalidResult(context.metrics());
+              }
+            })
+        .doOnError(e -> DataBufferUtils.release(body));
+  }
+
+  /**
+   * Runs the script of the filter with the response.
+   *
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @param wrappedRequest Wrapper of the original request.
+   * @param wrappedResponse Wrapper of the response to process.
+   * @return The object returned by the script.
+   * @throws Exception If the script code produces an exception.
+   */
+  private static Object runResponseScript(
+      ScriptFilterContext context, RequestWrapper wrappedRequest, ResponseWrapper wrappedResponse)
+      throws Exception {
+    var start = System.nanoTime();
+
+    try {
+      return context
+          .scriptManager()
+          .run(
+              Map.of(
+                  "request", wrappedRequest,
+                  "response", wrappedResponse,
+                  "state", context.state()));
+    } finally {
+      context.metrics().recordExecution(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records an invalid script result, and generates the error returned for it.
+   *
+   * @param filterMetrics Metrics of the filter.
+   * @return The error returned when the script's result is not valid.
+   */
+  private static <T> Mono<T> invalidResult(ScriptFilterMetrics filterMetrics) {
+    filterMetrics.recordInvalidResult();
+    return Mono.error(
+        new HttpResponseWrapperException(
+                HttpStatus.INTERNAL_SERVER_ERROR,
+                "The return object of the script is not valid",
+                null)
+            .getAsResponseStatusException());
+  }
+}
@@ -1,18 +1,51 @@
 package org.nbreval.spring.cloud.gateway.scripting.core.filter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptExecutionMode;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptGuard;
 import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
 import org.nbreval.spring.cloud.gateway.scripting.core.exception.HttpResponseWrapperException;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptFilterMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptMetrics;
 import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptManager;
-import org.nbreval.spring.cloud.gateway.scripting.core.util.function.ThrowableBiConsumer;
+import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptPipeline;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.cache.ResponseCache;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.file.FileManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.file.ScriptFileWatcher;
 import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapperSettings;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseBuilder;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ShortCircuitResponse;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.WebClientManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.state.ScriptState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Abstract class used to implement cutsom script-based gateway filters. This filter obtains the
@@ -22,55 +55,614 @@ import reactor.core.publisher.Mono;
 public abstract class AbstractScriptingFilterFactory
     extends AbstractGatewayFilterFactory<ScriptingFilterConfig> {
 
+  /** Logger object used to show some information in application's log. */
+  private static final Logger log = LoggerFactory.getLogger(AbstractScriptingFilterFactory.class);
+
+  /** Attribute of the exchange set when the filter has buffered the request's body. */
+  private static final String REQUEST_BODY_BUFFERED_ATTR =
+      AbstractScriptingFilterFactory.class.getName() + ".requestBodyBuffered";
+
+  /** Attribute of the exchange with the request's wrapper used by the guards of a filter. */
+  private static final String GUARDED_REQUEST_ATTR =
+      AbstractScriptingFilterFactory.class.getName() + ".guardedRequest";
+
+  /** Time to wait since the last change of a script file before reloading it. */
+  private static final Duration HOT_RELOAD_DEBOUNCE = Duration.ofMillis(500);
+
+  /** Provider of the metrics of the filters. */
+  private ScriptMetrics metrics = ScriptMetrics.NOOP;
+
+  /** Watcher of script files with hot reload enabled, created when the first one is applied. */
+  private ScriptFileWatcher scriptFileWatcher;
+
   public AbstractScriptingFilterFactory() {
     super(ScriptingFilterConfig.class);
   }
 
+  /**
+   * Generates the filter for a route. The script is compiled here, once per route, so requests
+   * never pay for reading or compiling it, and each route keeps its own compiled script. When the
+   * script is run off the event loop and has a timeout, the filter also stops waiting for it once
+   * the timeout is exceeded, even if the script is blocked. When the filter has guards, requests
+   * which don't meet them bypass the whole filter.
+   *
+   * @param config Configuration of the filter for the route.
+   * @return The filter which runs the route's script for each request.
+   */
   @Override
   public GatewayFilter apply(ScriptingFilterConfig config) {
+    var filterMetrics = metrics.forFilter(config.getRouteId(), name());
+    ScriptManager scriptManager;
+    HttpStatus timeoutStatus;
+    RequestWrapperSettings wrapperSettings;
+
+    try {
+      var start = System.nanoTime();
+      scriptManager = createScriptManager(config);
+      filterMetrics.recordCompilation(System.nanoTime() - start);
+
+      if (config.isHotReload()) {
+        validateReload(scriptManager);
+      }
+
+      timeoutStatus = getTimeoutStatus(config);
+      wrapperSettings = getRequestWrapperSettings(config);
+      config.getGuards().forEach(ScriptGuard::validate);
+    } catch (IOException | ParseException e) {
+      log.error("Unable to load the JWKS for the filter", e);
+      return (exchange, chain) -> Mono.error(toResponseStatusException(e, null));
+    } catch (HttpResponseWrapperException e) {
+      log.error("Unable to generate the script manager for the filter", e);
+      return (exchange, chain) -> e.getAsMonoError();
+    } catch (RuntimeException e) {
+      log.error("Unable to generate the script manager for the filter", e);
+      return (exchange, chain) -> Mono.error(toResponseStatusException(e, null));
+    }
+
+    if (config.isHotReload()) {
+      if (scriptManager instanceof ScriptPipeline pipeline) {
+        var scripts = config.getScripts();
+
+        for (int i = 0; i < scripts.size(); i++) {
+          watchScriptFile(
+              config.forStage(scripts.get(i)), pipeline.getStages().get(i), filterMetrics);
+        }
+      } else {
+        watchScriptFile(config, scriptManager, filterMetrics);
+      }
+    }
+
+    var context =
+        new ScriptFilterContext(
+            config,
+            scriptManager,
+            filterMetrics,
+            timeoutStatus,
+            wrapperSettings,
+            WebClientManager.getWebClient(config.getWebClientTimeout()),
+            new ScriptState(config.getStateMaxEntries()),
+            new ResponseCache(
+                config.getCacheMaxEntries(),
+                config.getCacheMaxBytes(),
+                config.getMaxBodySize(),
+                filterMetrics));
+    var filter = createFilter(context);
+
+    return config.getGuards().isEmpty()
+        ? filter
+        : guardFilter(filter, List.copyOf(config.getGuards()), context);
+  }
+
+  /**
+   * Wraps a filter so it's only run for requests which meet all guards of the filter. The rest of
+   * requests continue the filter chain unmodified, without buffering the body or running the
+   * script. When guards check claims, the request's wrapper used to read them is stored in the
+   * exchange and passed to the script, so the token is decoded only once.
+   *
+   * @param filter Filter which runs the script.
+   * @param guards Guards of the filter.
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @return The guarded filter.
+   */
+  private static GatewayFilter guardFilter(
+      GatewayFilter filter, List<ScriptGuard> guards, ScriptFilterContext context) {
+    var checksClaims = guards.stream().anyMatch(guard -> guard.getClaim() != null);
+
     return (exchange, chain) -> {
-      try {
-        var wrappedRequest = new RequestWrapper(exchange.getRequest());
-
-        var scriptManager = getScriptManager(config);
-
-        var result =
-            scriptManager.run(
-                Map.of(
-                    "request",
-                    wrappedRequest,
-                    "response",
-                    (ThrowableBiConsumer<Integer, String, HttpResponseWrapperException>)
-                        (code, message) -> {
-                          throw new HttpResponseWrapperException(
-                              HttpStatus.valueOf(code), message, null);
-                        }));
-
-        if (result instanceof RequestWrapper modifiedWrappedRequest) {
-          return chain.filter(modifiedWrappedRequest.murateExchange(exchange));
-        } else {
-          throw new HttpResponseWrapperException(
-              HttpStatus.INTERNAL_SERVER_ERROR,
-              "The return object of the script is not valid",
-              null);
+      var wrappedRequest =
+          checksClaims
+              ? new RequestWrapper(exchange.getRequest(), context.wrapperSettings())
+              : null;
+
+      for (var guard : guards) {
+        if (!guard.matches(exchange.getRequest(), wrappedRequest)) {
+          context.metrics().recordSkipped();
+          return chain.filter(exchange);
         }
-      } catch (HttpResponseWrapperException e) {
-        return e.getAsMonoError();
-      } catch (Exception e) {
-        return Mono.error(
-            new ResponseStatusException(
-                HttpStatus.INTERNAL_SERVER_ERROR, "Error processing request", e));
       }
+
+      if (wrappedRequest != null) {
+        exchange
+            .getAttributes()
+            .put(GUARDED_REQUEST_ATTR, new GuardedRequest(context, wrappedRequest));
+      }
+
+      return filter.filter(exchange, chain);
     };
   }
 
+  /**
+   * Generates the filter which runs the script for each request, and continues the filter chain
+   * with the request modified by the script. Filter variants which run the script in a different
+   * phase of the request override this method.
+   *
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @return The filter which runs the route's script for each request.
+   */
+  protected GatewayFilter createFilter(ScriptFilterContext context) {
+    var config = context.config();
+    var filterMetrics = context.metrics();
+    var timeoutStatus = context.timeoutStatus();
+    var scheduler = getScheduler(config.getExecutionMode());
+    var timeout = config.getTimeout();
+    var maxBodySize = config.getMaxBodySize();
+    GatewayFilter scriptFilter;
+
+    if (scheduler == null) {
+      scriptFilter =
+          (exchange, chain) -> {
+            Object result;
+
+            try {
+              result = runScript(context, exchange);
+            } catch (Exception e) {
+              return Mono.error(handleScriptError(e, filterMetrics, timeoutStatus));
+            }
+
+            return processResult(result, context, exchange, chain);
+          };
+    } else {
+      scriptFilter =
+          (exchange, chain) -> {
+            var execution = Mono.fromCallable(() -> runScript(context, exchange));
+            execution = execution.subscribeOn(scheduler);
+
+            if (timeout != null) {
+              execution = execution.timeout(timeout);
+            }
+
+            return execution
+                .onErrorMap(e -> handleScriptError(e, filterMetrics, timeoutStatus))
+                .singleOptional()
+                .flatMap(result -> processResult(result.orElse(null), context, exchange, chain));
+          };
+    }
+
+    return (exchange, chain) ->
+        context.scriptManager().usesBody()
+            ? filterWithBody(exchange, chain, scriptFilter, maxBodySize)
+            : scriptFilter.filter(exchange, chain);
+  }
+
   @Override
   public List<String> shortcutFieldOrder() {
     return Collections.singletonList("scriptOrPath");
   }
 
   /**
-   * Obtains the script manager used to modify the request, based on the config.
+   * Sets the provider of the metrics of the filters. It must be set before applying the filters to
+   * the routes. By default, metrics are disabled.
+   *
+   * @param metrics Provider of the metrics of the filters.
+   */
+  public void setMetrics(ScriptMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Generates the script manager of a filter. When the filter configures a list of scripts, each
+   * one is compiled with the filter's options, and they're run in order as a {@link
+   * ScriptPipeline}.
+   *
+   * @param config Configuration of the filter.
+   * @return The script manager of the filter.
+   * @throws HttpResponseWrapperException If any script can't be obtained.
+   * @throws IllegalArgumentException If the filter configures both a script and a list of scripts.
+   */
+  private ScriptManager createScriptManager(ScriptingFilterConfig config)
+      throws HttpResponseWrapperException {
+    var scripts = config.getScripts();
+
+    if (scripts.isEmpty()) {
+      return getScriptManager(config);
+    } else if (config.getScriptOrPath() != null) {
+      throw new IllegalArgumentException("Only one of scriptOrPath and scripts can be configured");
+    }
+
+    var stages = new ArrayList<ScriptManager>(scripts.size());
+
+    for (var script : scripts) {
+      stages.add(getScriptManager(config.forStage(script)));
+    }
+
+    return new ScriptPipeline(stages, config.getTimeout());
+  }
+
+  /**
+   * Checks if the script of a filter, or all stages of a pipeline, can be reloaded, as required by
+   * the hot reload option.
+   *
+   * @param scriptManager Manager of the filter's script.
+   * @throws IllegalArgumentException If any script can't be reloaded.
+   */
+  private static void validateReload(ScriptManager scriptManager) {
+    var managers =
+        scriptManager instanceof ScriptPipeline pipeline
+            ? pipeline.getStages()
+            : List.of(scriptManager);
+
+    for (var manager : managers) {
+      if (!manager.supportsReload()) {
+        throw new IllegalArgumentException(
+            "Hot reload is not supported by " + manager.getClass().getSimpleName());
+      }
+    }
+  }
+
+  /**
+   * Starts watching the script file of a filter, to reload the script when the file changes.
+   * Requests are never stalled by a reload: the new version is compiled in a background thread, and
+   * replaces the previous one only if it's compiled successfully.
+   *
+   * @param config Configuration of the filter.
+   * @param scriptManager Manager of the filter's script.
+   * @param filterMetrics Metrics of the filter.
+   */
+  private void watchScriptFile(
+      ScriptingFilterConfig config,
+      ScriptManager scriptManager,
+      ScriptFilterMetrics filterMetrics) {
+    var scriptFile = config.getScriptFile();
+
+    if (scriptFile == null) {
+      log.warn("Hot reload is only available for scripts in the file system, ignoring it");
+      return;
+    }
+
+    try {
+      getScriptFileWatcher()
+          .watch(
+              scriptFile,
+              scriptManager,
+              manager -> reloadScript(manager, scriptFile, filterMetrics));
+    } catch (IOException e) {
+      log.error("Unable to watch the script file {}, hot reload is disabled", scriptFile, e);
+    }
+  }
+
+  /**
+   * Obtains the watcher of script files, creating it if it doesn't exist yet.
+   *
+   * @return The watcher of script files.
+   * @throws IOException If the watcher can't be created.
+   */
+  private synchronized ScriptFileWatcher getScriptFileWatcher() throws IOException {
+    if (scriptFileWatcher == null) {
+      scriptFileWatcher = new ScriptFileWatcher(HOT_RELOAD_DEBOUNCE);
+    }
+
+    return scriptFileWatcher;
+  }
+
+  /**
+   * Reloads the script of a filter from its file. If the new version can't be read, because the
+   * file is being replaced, or can't be compiled, the previous one is kept.
+   *
+   * @param scriptManager Manager of the filter's script.
+   * @param scriptFile Path of the script's file.
+   * @param filterMetrics Metrics of the filter.
+   */
+  private static void reloadScript(
+      ScriptManager scriptManager, Path scriptFile, ScriptFilterMetrics filterMetrics) {
+    try {
+      var script = FileManager.getRegularFileContentAsText(scriptFile.toString());
+      var start = System.nanoTime();
+      scriptManager.reload(script);
+      filterMetrics.recordCompilation(System.nanoTime() - start);
+      log.info("Script {} reloaded", scriptFile);
+    } catch (Exception e) {
+      log.error("Unable to reload script {}, keeping the previous version", scriptFile, e);
+    }
+  }
+
+  /**
+   * Runs the filter of a script which reads the request's body, after buffering the body. The
+   * buffered body is stored in the exchange like Spring Cloud Gateway's own filters do, so the
+   * downstream request reuses it without copying it again, and it's released when the exchange
+   * finishes.
+   *
+   * @param exchange Exchange with the request to process.
+   * @param chain Filter chain to continue.
+   * @param scriptFilter Filter which runs the script.
+   * @param maxBodySize Maximum size, in bytes, of the body.
+   * @return The result of the filter, or an error with status 413 if the body is too large.
+   */
+  private static Mono<Void> filterWithBody(
+      ServerWebExchange exchange,
+      GatewayFilterChain chain,
+      GatewayFilter scriptFilter,
+      int maxBodySize) {
+    if (exchange.getRequest().getHeaders().getContentLength() > maxBodySize) {
+      return Mono.error(bodyTooLarge(null));
+    }
+
+    var limitedRequest =
+        new ServerHttpRequestDecorator(exchange.getRequest()) {
+          @Override
+          public Flux<DataBuffer> getBody() {
+            return DataBufferUtils.join(super.getBody(), maxBodySize).flux();
+          }
+        };
+
+    return ServerWebExchangeUtils.cacheRequestBody(
+            exchange.mutate().request(limitedRequest).build(),
+            cachedRequest -> {
+              exchange.getAttributes().put(REQUEST_BODY_BUFFERED_ATTR, Boolean.TRUE);
+              return scriptFilter.filter(exchange.mutate().request(cachedRequest).build(), chain);
+            })
+        .onErrorMap(DataBufferLimitException.class, AbstractScriptingFilterFactory::bodyTooLarge);
+  }
+
+  /**
+   * Generates the error returned when the request's body exceeds the maximum size.
+   *
+   * @param e Exception produced reading the body, if any.
+   * @return The {@link ResponseStatusException} to return as error.
+   */
+  private static Throwable bodyTooLarge(Throwable e) {
+    return new HttpResponseWrapperException(
+            HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large", e)
+        .getAsResponseStatusException();
+  }
+
+  /**
+   * Obtains the buffered body of a request, if the filter has buffered it.
+   *
+   * @param exchange Exchange with the request to process.
+   * @return The buffered body, an empty buffer if the request doesn't have body, or null if the
+   *     filter has not buffered it.
+   */
+  private static DataBuffer getBufferedBody(ServerWebExchange exchange) {
+    DataBuffer body = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+
+    if (body == null && exchange.getAttributes().containsKey(REQUEST_BODY_BUFFERED_ATTR)) {
+      body = exchange.getResponse().bufferFactory().wrap(new byte[0]);
+    }
+
+    return body;
+  }
+
+  /**
+   * Generates the wrapper of an exchange's request passed to the script. If the guards of the
+   * filter have already read the request's claims, their wrapper is reused, so the token is not
+   * decoded again.
+   *
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @param exchange Exchange with the request to wrap.
+   * @param body Buffered body of the request, or null if the filter has not buffered it.
+   * @return The wrapper of the request.
+   */
+  protected static RequestWrapper getRequestWrapper(
+      ScriptFilterContext context, ServerWebExchange exchange, DataBuffer body) {
+    GuardedRequest guardedRequest = exchange.getAttribute(GUARDED_REQUEST_ATTR);
+
+    if (guardedRequest != null && guardedRequest.context() == context) {
+      exchange.getAttributes().remove(GUARDED_REQUEST_ATTR);
+      return guardedRequest.wrappedRequest().withBody(exchange.getRequest(), body);
+    }
+
+    return new RequestWrapper(exchange.getRequest(), context.wrapperSettings(), body);
+  }
+
+  /**
+   * Runs the script of the filter with the request of an exchange.
+   *
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @param exchange Exchange with the request to process.
+   * @return The object returned by the script.
+   * @throws Exception If the script code produces an exception.
+   */
+  private static Object runScript(ScriptFilterContext context, ServerWebExchange exchange)
+      throws Exception {
+    var wrappedRequest = getRequestWrapper(context, exchange, getBufferedBody(exchange));
+    var start = System.nanoTime();
+
+    try {
+      return context
+          .scriptManager()
+          .run(
+              Map.of(
+                  "request",
+                  wrappedRequest,
+                  "response",
+                  ResponseBuilder.DEFAULT,
+                  "webClient",
+                  context.webClient(),
+                  "state",
+                  context.state()));
+    } finally {
+      context.metrics().recordExecution(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Continues the filter chain with the request modified by the script, or writes the custom
+   * response returned by the script, without continuing it. When the script marks the request as
+   * cacheable, the filter chain is continued only if the response is not in the route's cache. If
+   * the script returns a {@link Mono} or a {@link CompletionStage}, it's processed once it's
+   * completed, without blocking the thread, and within the script's timeout, if any.
+   *
+   * @param result Object returned by the script.
+   * @param context Objects prepared for the filter when it's applied to a route.
+   * @param exchange Exchange with the original request.
+   * @param chain Filter chain to continue.
+   * @return The result of the filter chain, or an error if the script's result is not valid.
+   */
+  private static Mono<Void> processResult(
+      Object result,
+      ScriptFilterContext context,
+      ServerWebExchange exchange,
+      GatewayFilterChain chain) {
+    var filterMetrics = context.metrics();
+
+    if (result instanceof Mono<?> || result instanceof CompletionStage<?>) {
+      Mono<?> asyncResult =
+          result instanceof Mono<?> mono
+              ? mono
+              : Mono.fromCompletionStage((CompletionStage<?>) result);
+      var timeout = context.config().getTimeout();
+
+      if (timeout != null) {
+        asyncResult = asyncResult.timeout(timeout);
+      }
+
+      return asyncResult
+          .onErrorMap(e -> handleScriptError(e, filterMetrics, context.timeoutStatus()))
+          .singleOptional()
+          .flatMap(asyncValue -> processResult(asyncValue.orElse(null), context, exchange, chain));
+    } else if (result instanceof RequestWrapper modifiedWrappedRequest) {
+      ServerWebExchange modifiedExchange;
+
+      try {
+        modifiedExchange = modifiedWrappedRequest.murateExchange(exchange);
+      } catch (RuntimeException e) {
+        filterMetrics.recordError(e);
+        return Mono.error(toResponseStatusException(e, null));
+      }
+
+      var cacheKey = modifiedWrappedRequest.getCacheKey();
+
+      return cacheKey != null
+          ? context
+              .responseCache()
+              .filter(
+                  cacheKey, modifiedWrappedRequest.getCacheTimeToLive(), modifiedExchange, chain)
+          : chain.filter(modifiedExchange);
+    } else if (result instanceof ShortCircuitResponse shortCircuitResponse) {
+      filterMetrics.recordShortCircuit(shortCircuitResponse.getStatus());
+      return shortCircuitResponse.writeTo(exchange.getResponse());
+    } else {
+      filterMetrics.recordInvalidResult();
+      return new HttpResponseWrapperException(
+              HttpStatus.INTERNAL_SERVER_ERROR,
+              "The return object of the script is not valid",
+              null)
+          .getAsMonoError();
+    }
+  }
+
+  /**
+   * Records an exception produced by a script in the filter's metrics, and converts it into the
+   * exception used to return an HTTP error.
+   *
+   * @param e Exception produced by the script.
+   * @param filterMetrics Metrics of the filter.
+   * @param timeoutStatus Status returned when the script exceeds its timeout.
+   * @return The {@link ResponseStatusException} to return as error.
+   */
+  protected static Throwable handleScriptError(
+      Throwable e, ScriptFilterMetrics filterMetrics, HttpStatus timeoutStatus) {
+    if (e instanceof HttpResponseWrapperException responseException) {
+      filterMetrics.recordShortCircuit(responseException.getStatus().value());
+    } else {
+      filterMetrics.recordError(e);
+    }
+
+    return toResponseStatusException(e, timeoutStatus);
+  }
+
+  /**
+   * Converts an exception produced by a script into the exception used to return an HTTP error.
+   *
+   * @param e Exception produced by the script.
+   * @param timeoutStatus Status returned when the script exceeds its timeout.
+   * @return The {@link ResponseStatusException} to return as error.
+   */
+  protected static Throwable toResponseStatusException(Throwable e, HttpStatus timeoutStatus) {
+    if (e instanceof HttpResponseWrapperException responseException) {
+      return responseException.getAsResponseStatusException();
+    } else if (e instanceof TimeoutException && timeoutStatus != null) {
+      return new HttpResponseWrapperException(timeoutStatus, "Script execution timed out", e)
+          .getAsResponseStatusException();
+    } else {
+      return new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Error processing request", e);
+    }
+  }
+
+  /**
+   * Obtains the status returned when the script of a filter exceeds its timeout.
+   *
+   * @param config Configuration of the filter.
+   * @return The status returned on timeouts.
+   * @throws IllegalArgumentException If the status is not a client or server error.
+   */
+  private static HttpStatus getTimeoutStatus(ScriptingFilterConfig config) {
+    var timeoutStatus = HttpStatus.resolve(config.getTimeoutStatus());
+
+    if (timeoutStatus == null || !timeoutStatus.isError()) {
+      throw new IllegalArgumentException(
+          "The timeoutStatus must be a 4xx or 5xx status code, but it's "
+              + config.getTimeoutStatus());
+    }
+
+    return timeoutStatus;
+  }
+
+  /**
+   * Prepares the settings of the request wrappers of a filter.
+   *
+   * @param config Configuration of the filter.
+   * @return The settings of the request wrappers.
+   * @throws IOException If the JWKS of the filter can't be read.
+   * @throws ParseException If the JWKS of the filter is not valid.
+   */
+  private static RequestWrapperSettings getRequestWrapperSettings(ScriptingFilterConfig config)
+      throws IOException, ParseException {
+    var tokenVerifier =
+        config.getJwksLocation() != null
+            ? TokenManager.getTokenVerifier(
+                config.getJwksLocation(),
+                config.getJwksReloadInterval(),
+                config.getTokenCacheMaxEntries(),
+                config.getTokenCacheTimeToLive())
+            : null;
+
+    return new RequestWrapperSettings(
+        config.getClaimsDecoder(),
+        tokenVerifier,
+        TokenManager.getClaimsCache(
+            config.getTokenCacheMaxEntries(), config.getTokenCacheTimeToLive()));
+  }
+
+  /**
+   * Obtains the scheduler used to run scripts with an execution mode.
+   *
+   * @param executionMode Execution mode of the filter.
+   * @return The scheduler to run scripts, or null if they must be run inline.
+   */
+  protected static Scheduler getScheduler(ScriptExecutionMode executionMode) {
+    return switch (executionMode) {
+      case VIRTUAL_THREAD -> VirtualThreadSchedulerHolder.scheduler;
+      case BOUNDED_ELASTIC -> Schedulers.boundedElastic();
+      case INLINE -> null;
+    };
+  }
+
+  /**
+   * Obtains the script manager used to modify the request, based on the config. It's invoked once
+   * for each route when the filter is applied, so implementations must return a new manager for
+   * each configuration instead of sharing a single one between routes.
    *
    * @param config Configuration object used to generate the {@link ScriptManager}.
    * @return The {@link ScriptManager} generated based on filter configuration.
@@ -78,4 +670,20 @@ public abstract class AbstractScriptingFilterFactory
    */
   protected abstract ScriptManager getScriptManager(ScriptingFilterConfig config)
       throws HttpResponseWrapperException;
+
+  /** Holder of the scheduler of virtual threads, created only when a filter requires it. */
+  private static class VirtualThreadSchedulerHolder {
+    private static final Scheduler scheduler =
+        Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(), "gateway-scripting");
+  }
+
+  /**
+   * Wrapper of a request used by the guards of a filter, stored in the exchange until the filter
+   * runs its script.
+   *
+   * @param context Objects prepared for the filter whose guards created the wrapper.
+   * @param wrappedRequest Wrapper of the request, with the claims read by the guards.
+   */
+  private record GuardedRequest(ScriptFilterContext context, RequestWrapper wrappedRequest) {}
 }
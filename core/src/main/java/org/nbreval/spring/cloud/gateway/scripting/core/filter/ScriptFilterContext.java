@@ -0,0 +1,34 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.filter;
+
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptFilterMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.cache.ResponseCache;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapperSettings;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.state.ScriptState;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Objects prepared once when a filter is applied to a route, used to generate the filter which runs
+ * the script for each request.
+ *
+ * @param config Configuration of the filter for the route.
+ * @param scriptManager Manager of the filter's script, already compiled.
+ * @param metrics Metrics of the filter.
+ * @param timeoutStatus Status returned when the script exceeds its timeout.
+ * @param wrapperSettings Settings of the request wrappers passed to the script.
+ * @param webClient Non-blocking web client passed to the script, to call other services.
+ * @param state State shared by all requests of the route, passed to the script.
+ * @param responseCache Cache of the upstream responses of the requests marked as cacheable by the
+ *     script.
+ */
+public record ScriptFilterContext(
+    ScriptingFilterConfig config,
+    ScriptManager scriptManager,
+    ScriptFilterMetrics metrics,
+    HttpStatus timeoutStatus,
+    RequestWrapperSettings wrapperSettings,
+    WebClient webClient,
+    ScriptState state,
+    ResponseCache responseCache) {}
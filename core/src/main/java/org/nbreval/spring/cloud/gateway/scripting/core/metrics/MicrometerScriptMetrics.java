@@ -0,0 +1,205 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenClaimsCache;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
+
+/**
+ * Implementation of {@link ScriptMetrics} which stores the metrics in a Micrometer {@link
+ * MeterRegistry}. All meters are tagged with the route's identifier and the filter's name.
+ */
+public class MicrometerScriptMetrics implements ScriptMetrics {
+
+  /** Time spent reading and compiling scripts. */
+  public static final String COMPILATION_METER = "gateway.scripting.compilation";
+
+  /** Time spent running scripts, published as histogram. */
+  public static final String EXECUTION_METER = "gateway.scripting.execution";
+
+  /** Requests stopped by scripts with a custom HTTP response, tagged by status code. */
+  public static final String SHORT_CIRCUITS_METER = "gateway.scripting.short.circuits";
+
+  /** Requests which bypassed the script because they didn't meet the filter's guards. */
+  public static final String SKIPPED_METER = "gateway.scripting.skipped";
+
+  /** Script executions which returned an object that is not valid. */
+  public static final String INVALID_RESULTS_METER = "gateway.scripting.invalid.results";
+
+  /** Exceptions produced by scripts, tagged by exception type. */
+  public static final String ERRORS_METER = "gateway.scripting.errors";
+
+  /**
+   * Cacheable requests, tagged by result of the filter's response cache: <i>hit</i>, <i>miss</i> or
+   * <i>coalesced</i>, when they wait for a concurrent request with the same key.
+   */
+  public static final String RESPONSE_CACHE_REQUESTS_METER = "gateway.scripting.cache.requests";
+
+  /** Requests of token claims, tagged by result, <i>hit</i> or <i>miss</i>, of the claims cache. */
+  public static final String TOKEN_CACHE_REQUESTS_METER = "gateway.scripting.token.cache.requests";
+
+  /** Number of tokens stored in the claims cache. */
+  public static final String TOKEN_CACHE_SIZE_METER = "gateway.scripting.token.cache.size";
+
+  private final MeterRegistry registry;
+
+  public MicrometerScriptMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    bindTokenClaimsCaches(registry, TokenManager.getClaimsCaches());
+  }
+
+  @Override
+  public ScriptFilterMetrics forFilter(String routeId, String filterName) {
+    return new MicrometerScriptFilterMetrics(
+        registry, Tags.of("route", routeId != null ? routeId : "unknown", "filter", filterName));
+  }
+
+  /**
+   * Registers the meters of the caches of parsed token claims, which are shared by all filters with
+   * the same settings. Meters add the values of all caches, including the ones created later.
+   *
+   * @param registry Registry where meters are registered.
+   * @param caches Caches of token claims.
+   */
+  private static void bindTokenClaimsCaches(
+      MeterRegistry registry, Collection<TokenClaimsCache> caches) {
+    FunctionCounter.builder(
+            TOKEN_CACHE_REQUESTS_METER,
+            caches,
+            c -> c.stream().mapToLong(TokenClaimsCache::getHitCount).sum())
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder(
+            TOKEN_CACHE_REQUESTS_METER,
+            caches,
+            c -> c.stream().mapToLong(TokenClaimsCache::getMissCount).sum())
+        .tag("result", "miss")
+        .register(registry);
+    Gauge.builder(
+            TOKEN_CACHE_SIZE_METER, caches, c -> c.stream().mapToInt(TokenClaimsCache::size).sum())
+        .register(registry);
+  }
+
+  /** Metrics of a filter, with its meters registered once when the filter is applied. */
+  private static class MicrometerScriptFilterMetrics implements ScriptFilterMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Tags tags;
+
+    private final Timer compilation;
+
+    private final Timer execution;
+
+    private final Counter skipped;
+
+    private final Counter invalidResults;
+
+    private final Counter cacheHits;
+
+    private final Counter cacheMisses;
+
+    private final Counter cacheCoalesced;
+
+    /** Counters of short circuits, registered when a status code is used for first time. */
+    private final Map<Integer, Counter> shortCircuits = new ConcurrentHashMap<>();
+
+    /** Counters of errors, registered when an exception type is thrown for first time. */
+    private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+    MicrometerScriptFilterMetrics(MeterRegistry registry, Tags tags) {
+      this.registry = registry;
+      this.tags = tags;
+      this.compilation = Timer.builder(COMPILATION_METER).tags(tags).register(registry);
+      this.execution =
+          Timer.builder(EXECUTION_METER).tags(tags).publishPercentileHistogram().register(registry);
+      this.skipped = Counter.builder(SKIPPED_METER).tags(tags).register(registry);
+      this.invalidResults = Counter.builder(INVALID_RESULTS_METER).tags(tags).register(registry);
+      this.cacheHits = cacheCounter("hit");
+      this.cacheMisses = cacheCounter("miss");
+      this.cacheCoalesced = cacheCounter("coalesced");
+    }
+
+    /**
+     * Registers the counter of requests of the response cache with a result.
+     *
+     * @param result Result of the cache.
+     * @return The registered counter.
+     */
+    private Counter cacheCounter(String result) {
+      return Counter.builder(RESPONSE_CACHE_REQUESTS_METER)
+          .tags(tags)
+          .tag("result", result)
+          .register(registry);
+    }
+
+    @Override
+    public void recordCompilation(long nanos) {
+      compilation.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordExecution(long nanos) {
+      execution.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSkipped() {
+      skipped.increment();
+    }
+
+    @Override
+    public void recordShortCircuit(int status) {
+      shortCircuits
+          .computeIfAbsent(
+              status,
+              key ->
+                  Counter.builder(SHORT_CIRCUITS_METER)
+                      .tags(tags)
+                      .tag("status", String.valueOf(key))
+                      .register(registry))
+          .increment();
+    }
+
+    @Override
+    public void recordCacheHit() {
+      cacheHits.increment();
+    }
+
+    @Override
+    public void recordCacheMiss() {
+      cacheMisses.increment();
+    }
+
+    @Override
+    public void recordCacheCoalesced() {
+      cacheCoalesced.increment();
+    }
+
+    @Override
+    public void recordInvalidResult() {
+      invalidResults.increment();
+    }
+
+    @Override
+    public void recordError(Throwable error) {
+      errors
+          .computeIfAbsent(
+              error.getClass(),
+              key ->
+                  Counter.builder(ERRORS_METER)
+                      .tags(tags)
+                      .tag("exception", key.getSimpleName())
+                      .register(registry))
+          .increment();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.metrics;
+
+/** Metrics of a scripting filter applied to a route. All methods ignore measurements by default. */
+public interface ScriptFilterMetrics {
+
+  /** Metrics which ignore all measurements. */
+  ScriptFilterMetrics NOOP = new ScriptFilterMetrics() {};
+
+  /**
+   * Records the time spent reading and compiling the script of the filter.
+   *
+   * @param nanos Elapsed time, in nanoseconds.
+   */
+  default void recordCompilation(long nanos) {}
+
+  /**
+   * Records the time spent running the script of the filter for a request.
+   *
+   * @param nanos Elapsed time, in nanoseconds.
+   */
+  default void recordExecution(long nanos) {}
+
+  /** Records a request which bypassed the script because it didn't meet the filter's guards. */
+  default void recordSkipped() {}
+
+  /**
+   * Records a request stopped by the script with a custom HTTP response.
+   *
+   * @param status HTTP status code of the response.
+   */
+  default void recordShortCircuit(int status) {}
+
+  /** Records a cacheable request answered from the filter's response cache. */
+  default void recordCacheHit() {}
+
+  /** Records a cacheable request not found in the filter's response cache. */
+  default void recordCacheMiss() {}
+
+  /**
+   * Records a cacheable request not found in the filter's response cache, which waited for the
+   * response of a concurrent request with the same key instead of calling the upstream service.
+   */
+  default void recordCacheCoalesced() {}
+
+  /** Records a script execution which returned an object that is not valid. */
+  default void recordInvalidResult() {}
+
+  /**
+   * Records an exception produced by the script, including timeouts.
+   *
+   * @param error Exception produced by the script.
+   */
+  default void recordError(Throwable error) {}
+}
@@ -0,0 +1,21 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.metrics;
+
+/**
+ * Provider of the metrics of scripting filters. The metrics of each filter are obtained once, when
+ * the filter is applied to a route, so recording them doesn't require any lookup.
+ */
+@FunctionalInterface
+public interface ScriptMetrics {
+
+  /** Provider used when metrics are disabled, which ignores all measurements. */
+  ScriptMetrics NOOP = (routeId, filterName) -> ScriptFilterMetrics.NOOP;
+
+  /**
+   * Obtains the metrics of a filter applied to a route.
+   *
+   * @param routeId Identifier of the route.
+   * @param filterName Name of the filter.
+   * @return The metrics of the filter.
+   */
+  ScriptFilterMetrics forFilter(String routeId, String filterName);
+}
@@ -1,15 +1,62 @@
 package org.nbreval.spring.cloud.gateway.scripting.core.script;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /** Abstract class used to implement different objects to run scripts with a initial context. */
 public abstract class ScriptManager {
 
+  /**
+   * Pattern of the accesses to the body of the request or the response, like
+   * <i>request.getBody()</i>, <i>request.bodyAsJson</i> or <i>response.setBody(...)</i>. Only calls
+   * on the <i>request</i> and <i>response</i> variables are matched, so building a custom response
+   * with <i>response.status(403).body("...")</i> doesn't buffer the body.
+   */
+  private static final Pattern bodyAccessPattern =
+      Pattern.compile(
+          "\\b(request|response)\\s*\\.\\s*(getBody|setBody|body)(AsString|AsJson)?\\b");
+
   /** Script to run later */
-  protected final String script;
+  protected volatile String script;
+
+  /** Indicates if the script accesses the body, so it must be buffered before running it. */
+  private volatile boolean usesBody;
 
   public ScriptManager(String script) {
+    setScript(script);
+  }
+
+  /**
+   * Indicates if the script may access the body of the request, or the response in response-phase
+   * filters. Only scripts which access the body pay the cost of buffering it. The check is made on
+   * the script's content, so it may detect body accesses which are never run, but not accesses made
+   * through other names.
+   *
+   * @return True if the script may access the body, else false.
+   */
+  public boolean usesBody() {
+    return usesBody;
+  }
+
+  /**
+   * Sets the script to run, and checks if it accesses the body.
+   *
+   * @param script Content of the script.
+   */
+  protected void setScript(String script) {
     this.script = script;
+    this.usesBody = accessesBody(script);
+  }
+
+  /**
+   * Checks if a script accesses the body. Managers which publish the script together with its
+   * prepared version use it to store the result with them.
+   *
+   * @param script Content of the script.
+   * @return True if the script may access the body, else false.
+   */
+  protected static boolean accessesBody(String script) {
+    return bodyAccessPattern.matcher(script).find();
   }
 
   /**
@@ -21,4 +68,28 @@ public abstract class ScriptManager {
    * @throws Exception If the script code produces an exception.
    */
   public abstract Object run(Map<String, Object> arguments) throws Exception;
+
+  /**
+   * Indicates if the manager can replace its script with {@link #reload(String)}. Filters with hot
+   * reload enabled are rejected when their manager doesn't support it.
+   *
+   * @return True if the script can be reloaded, else false.
+   */
+  public boolean supportsReload() {
+    return false;
+  }
+
+  /**
+   * Replaces the script with a new version. Executions already running finish with the previous
+   * version, and next ones use the new version. Managers which support it must override this method
+   * and {@link #supportsReload()}.
+   *
+   * @param script Content of the new version of the script.
+   * @throws Exception If the new version can't be prepared to run, in which case the previous
+   *     version is kept.
+   * @throws UnsupportedOperationException If the manager doesn't support reloading its script.
+   */
+  public void reload(String script) throws Exception {
+    throw new UnsupportedOperationException("This script manager doesn't support reloading");
+  }
 }
@@ -0,0 +1,122 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.script;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ChunkWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseWrapper;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * Script manager which runs an ordered list of scripts, compiled when the filter is applied, as the
+ * stages of a single filter. All stages receive the same arguments, so they share the same request
+ * wrapper, and the exchange is mutated only once, with the result of the last stage.
+ *
+ * <p>A stage continues the pipeline by returning the object it received, the request, or the
+ * response or chunk in the filters of those phases. Any other result, like a custom response, stops
+ * the pipeline and becomes its result, so the rest of stages are not run.
+ *
+ * <p>The timeout of the filter applies to the whole pipeline. Each stage's script is interrupted
+ * when it exceeds the timeout on its own, and no stage starts once the pipeline has exceeded it, so
+ * a pipeline never takes more than twice the timeout, whatever its number of stages.
+ */
+public class ScriptPipeline extends ScriptManager {
+
+  /** Managers of the scripts of each stage, in order. */
+  private final List<ScriptManager> stages;
+
+  /** Maximum time the whole pipeline can take, in nanoseconds, or zero if there is no limit. */
+  private final long timeoutNanos;
+
+  /**
+   * Generates the pipeline, without a timeout for the whole pipeline.
+   *
+   * @param stages Managers of the scripts of each stage, in order.
+   */
+  public ScriptPipeline(@NonNull List<ScriptManager> stages) {
+    this(stages, null);
+  }
+
+  /**
+   * Generates the pipeline.
+   *
+   * @param stages Managers of the scripts of each stage, in order.
+   * @param timeout Maximum time the whole pipeline can take, or null if there is no limit.
+   */
+  public ScriptPipeline(@NonNull List<ScriptManager> stages, Duration timeout) {
+    super(String.join("\n", stages.stream().map(stage -> stage.script).toList()));
+    this.stages = List.copyOf(stages);
+    this.timeoutNanos = timeout != null ? timeout.toNanos() : 0;
+  }
+
+  /**
+   * Obtains the managers of the scripts of each stage.
+   *
+   * @return The managers of the stages, in order.
+   */
+  public List<ScriptManager> getStages() {
+    return stages;
+  }
+
+  /**
+   * Indicates if any stage may access the body. It's checked on each call, so stages reloaded from
+   * their files are taken into account.
+   */
+  @Override
+  public boolean usesBody() {
+    for (var stage : stages) {
+      if (stage.usesBody()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Runs the stages in order, until one of them stops the pipeline.
+   *
+   * @throws IllegalStateException If a stage, other than the last one, returns an asynchronous
+   *     result, because the next stages can't run until it's completed.
+   * @throws TimeoutException If the pipeline exceeds its timeout before running all stages.
+   */
+  @Override
+  public Object run(Map<String, Object> arguments) throws Exception {
+    Object result = null;
+    var lastStage = stages.size() - 1;
+    var start = System.nanoTime();
+
+    for (int i = 0; i <= lastStage; i++) {
+      result = stages.get(i).run(arguments);
+
+      if (i == lastStage) {
+        break;
+      } else if (timeoutNanos > 0 && System.nanoTime() - start > timeoutNanos) {
+        throw new TimeoutException("The pipeline exceeded its timeout after stage " + (i + 1));
+      } else if (result instanceof Mono<?> || result instanceof CompletionStage<?>) {
+        throw new IllegalStateException(
+            "Only the last script of a pipeline can return an asynchronous result");
+      } else if (!continuesPipeline(result)) {
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Indicates if the result of a stage continues the pipeline.
+   *
+   * @param result Object returned by the stage.
+   * @return True if the result is the request, response or chunk passed to the stage, else false.
+   */
+  private static boolean continuesPipeline(Object result) {
+    return result instanceof RequestWrapper
+        || result instanceof ResponseWrapper
+        || result instanceof ChunkWrapper;
+  }
+}
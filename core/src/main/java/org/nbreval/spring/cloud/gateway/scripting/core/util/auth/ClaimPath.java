@@ -0,0 +1,147 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled path of a claim, used to extract the value of a multi-level claim from a claims map.
+ * Paths are made of keys separated by dots, and keys composed only by digits are also used as
+ * indexes of lists. Each path is split once, when it's compiled, so extracting a claim only walks
+ * the maps and lists of the claims.
+ */
+public final class ClaimPath {
+
+  /** Maximum number of compiled paths kept in {@link ClaimPath#cache}. */
+  private static final int MAX_CACHED_PATHS = 1024;
+
+  /** Compiled paths, by their text. When it's full, new paths are compiled without caching them. */
+  private static final Map<String, ClaimPath> cache = new ConcurrentHashMap<>();
+
+  /** Keys of each level of the path. */
+  private final String[] keys;
+
+  /** Index of each level of the path, used when the level is a list, or -1 if it's not a number. */
+  private final int[] indexes;
+
+  private ClaimPath(String path) {
+    var parts = new ArrayList<String>();
+    var start = 0;
+    var end = path.indexOf('.');
+
+    while (end >= 0) {
+      parts.add(path.substring(start, end));
+      start = end + 1;
+      end = path.indexOf('.', start);
+    }
+
+    parts.add(path.substring(start));
+
+    this.keys = parts.toArray(String[]::new);
+    this.indexes = new int[keys.length];
+
+    for (int i = 0; i < keys.length; i++) {
+      indexes[i] = toIndex(keys[i]);
+    }
+  }
+
+  /**
+   * Obtains the compiled version of a path, compiling it if it's not cached yet.
+   *
+   * @param path List of claims map keys, separated by dots.
+   * @return The compiled path.
+   */
+  public static ClaimPath of(String path) {
+    var claimPath = cache.get(path);
+
+    if (claimPath == null) {
+      claimPath = new ClaimPath(path);
+
+      if (cache.size() < MAX_CACHED_PATHS) {
+        cache.putIfAbsent(path, claimPath);
+      }
+    }
+
+    return claimPath;
+  }
+
+  /**
+   * Extracts the value of the path from a claims map.
+   *
+   * @param claims Claims map, it may be null.
+   * @return The value of the claim, or null if any level of the path doesn't exist.
+   */
+  public Object get(Map<String, Object> claims) {
+    Object value = claims;
+
+    for (int i = 0; i < keys.length && value != null; i++) {
+      var index = indexes[i];
+
+      if (index >= 0 && value instanceof List<?> list) {
+        value = index < list.size() ? list.get(index) : null;
+      } else if (value instanceof Map<?, ?> subClaims) {
+        value = subClaims.get(keys[i]);
+      } else {
+        value = null;
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Obtains the number of levels of the path.
+   *
+   * @return The number of levels of the path.
+   */
+  int length() {
+    return keys.length;
+  }
+
+  /**
+   * Obtains the key of a level of the path.
+   *
+   * @param level Level of the path, starting at zero.
+   * @return The key of the level.
+   */
+  String key(int level) {
+    return keys[level];
+  }
+
+  /**
+   * Obtains the list index of a level of the path.
+   *
+   * @param level Level of the path, starting at zero.
+   * @return The index of the level, or -1 if the level is not a number.
+   */
+  int index(int level) {
+    return indexes[level];
+  }
+
+  /**
+   * Converts a key of the path into a list index.
+   *
+   * @param key Key of a level of the path.
+   * @return The index represented by the key, or -1 if the key is not composed only by digits.
+   */
+  private static int toIndex(String key) {
+    if (key.isEmpty() || key.length() > 9) {
+      return -1;
+    }
+
+    var index = 0;
+
+    for (int i = 0; i < key.length(); i++) {
+      var c = key.charAt(i);
+
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+
+      index = index * 10 + (c - '0');
+    }
+
+    return index;
+  }
+}
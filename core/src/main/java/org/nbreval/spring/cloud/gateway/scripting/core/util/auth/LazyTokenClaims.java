@@ -0,0 +1,194 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.auth;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.json.JsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Claims of a token, read lazily from its decoded payload. Each claim is read with a streaming
+ * parser, which skips the rest of the payload once the claim is found, so reading a few claims is
+ * cheaper than parsing the whole token. Claims are converted like in a full parse: dates are
+ * returned as {@link Date} and the audience is always returned as a list.
+ *
+ * <p>It's not thread-safe, it's intended to be used by a single request.
+ */
+public class LazyTokenClaims {
+
+  /** Logger object used to show some information in application's log. */
+  private static final Logger log = LoggerFactory.getLogger(LazyTokenClaims.class);
+
+  /** Claims containing dates, as seconds since epoch. */
+  private static final Set<String> dateClaims = Set.of("exp", "iat", "nbf");
+
+  /** Marker of claims already read which don't exist. */
+  private static final Object MISSING = new Object();
+
+  /** Decoded payload of the token, in JSON format. */
+  private final byte[] payload;
+
+  /** Claims already read, by their compiled path. */
+  private final Map<ClaimPath, Object> readClaims = new IdentityHashMap<>();
+
+  /** All claims of the token, parsed when they're required for the first time. */
+  private Map<String, Object> claims;
+
+  /**
+   * Generates the claims of a token.
+   *
+   * @param payload Decoded payload of the token, in JSON format.
+   */
+  LazyTokenClaims(byte[] payload) {
+    this.payload = payload;
+  }
+
+  /**
+   * Obtains a claim of the token.
+   *
+   * @param path Compiled path of the claim.
+   * @return The value of the claim, or null if it doesn't exist.
+   */
+  public Object get(ClaimPath path) {
+    if (claims != null) {
+      return path.get(claims);
+    }
+
+    var value = readClaims.get(path);
+
+    if (value == null) {
+      value = find(path);
+      readClaims.put(path, value != null ? value : MISSING);
+    }
+
+    return value != MISSING ? value : null;
+  }
+
+  /**
+   * Obtains all claims of the token, parsing the whole payload the first time.
+   *
+   * @return The claims of the token, or an empty map if the payload is not valid.
+   */
+  public Map<String, Object> toMap() {
+    if (claims == null) {
+      try (var parser = JsonReader.createParser(payload)) {
+        if (parser.nextToken() == JsonToken.START_OBJECT
+            && JsonReader.readValue(parser) instanceof Map<?, ?> map) {
+          var parsedClaims = new LinkedHashMap<String, Object>();
+          map.forEach((key, value) -> parsedClaims.put((String) key, convert((String) key, value)));
+          claims = Collections.unmodifiableMap(parsedClaims);
+        } else {
+          claims = Map.of();
+        }
+      } catch (IOException e) {
+        log.debug("Unable to read claims from token payload", e);
+        claims = Map.of();
+      }
+    }
+
+    return claims;
+  }
+
+  /**
+   * Searches a claim in the payload, stopping the parse when it's found.
+   *
+   * @param path Compiled path of the claim.
+   * @return The value of the claim, or null if it doesn't exist.
+   */
+  private Object find(ClaimPath path) {
+    try (var parser = JsonReader.createParser(payload)) {
+      var token = parser.nextToken();
+
+      for (int level = 0; level < path.length(); level++) {
+        if (token == JsonToken.START_OBJECT) {
+          token = moveToField(parser, path.key(level));
+        } else if (token == JsonToken.START_ARRAY && path.index(level) >= 0) {
+          token = moveToElement(parser, path.index(level));
+        } else {
+          return null;
+        }
+
+        if (token == null) {
+          return null;
+        }
+      }
+
+      var value = JsonReader.readValue(parser);
+      return path.length() == 1 ? convert(path.key(0), value) : value;
+    } catch (IOException e) {
+      log.debug("Unable to read claim from token payload", e);
+      return null;
+    }
+  }
+
+  /**
+   * Moves the parser, placed at the start of an object, to the value of one of its fields.
+   *
+   * @param parser Parser placed at the start of an object.
+   * @param name Name of the field.
+   * @return The first token of the field's value, or null if the field doesn't exist.
+   * @throws IOException If the payload is not valid.
+   */
+  private static JsonToken moveToField(JsonParser parser, String name) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var fieldName = parser.currentName();
+      var token = parser.nextToken();
+
+      if (name.equals(fieldName)) {
+        return token;
+      }
+
+      parser.skipChildren();
+    }
+
+    return null;
+  }
+
+  /**
+   * Moves the parser, placed at the start of an array, to one of its elements.
+   *
+   * @param parser Parser placed at the start of an array.
+   * @param index Index of the element.
+   * @return The first token of the element, or null if the array has not so many elements.
+   * @throws IOException If the payload is not valid.
+   */
+  private static JsonToken moveToElement(JsonParser parser, int index) throws IOException {
+    var token = parser.nextToken();
+
+    for (int i = 0; token != null && token != JsonToken.END_ARRAY; i++) {
+      if (i == index) {
+        return token;
+      }
+
+      parser.skipChildren();
+      token = parser.nextToken();
+    }
+
+    return null;
+  }
+
+  /**
+   * Converts the value of a top-level registered claim like a full parse of the token does.
+   *
+   * @param name Name of the claim.
+   * @param value Value of the claim.
+   * @return The converted value.
+   */
+  private static Object convert(String name, Object value) {
+    if (value instanceof Number number && dateClaims.contains(name)) {
+      return new Date(number.longValue() * 1000);
+    } else if (value instanceof String string && "aud".equals(name)) {
+      return List.of(string);
+    } else {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the claims of tokens, shared by all requests. Tokens are stored by a SHA-256
+ * hash of their content, so the cache never keeps the tokens themselves, and entries expire after a
+ * maximum time, or when the token expires, whichever comes first.
+ *
+ * <p>The cache is split into stripes, each one with its own lock and evicting its least recently
+ * used entries when it's full, so the memory used is bounded even if every request has a different
+ * token.
+ */
+public class TokenClaimsCache {
+
+  /** Maximum number of tokens stored by default. */
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+
+  /** Maximum time an entry is kept by default. */
+  public static final Duration DEFAULT_MAX_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+  /** Number of stripes of the cache. It must be a power of two. */
+  private static final int STRIPES = 16;
+
+  /** Stripes of the cache, each one with a maximum number of entries. */
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  /** Maximum time an entry is kept, even if the token has not expired yet. */
+  private final Duration maxTimeToLive;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Generates the cache.
+   *
+   * @param maxSize Maximum number of tokens stored in the cache.
+   * @param maxTimeToLive Maximum time an entry is kept, even if the token has not expired yet.
+   */
+  public TokenClaimsCache(int maxSize, Duration maxTimeToLive) {
+    this.maxTimeToLive = maxTimeToLive;
+
+    var stripeSize = Math.max(maxSize / STRIPES, 1);
+
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(stripeSize);
+    }
+  }
+
+  /**
+   * Obtains the claims of a token from the cache.
+   *
+   * @param token String JWT.
+   * @return The claims of the token, or null if the token is not cached or its entry has expired.
+   */
+  public Map<String, Object> get(String token) {
+    var key = hash(token);
+    var stripe = getStripe(key);
+    Entry entry;
+
+    synchronized (stripe) {
+      entry = stripe.get(key);
+
+      if (entry != null && entry.expiresAt() <= System.currentTimeMillis()) {
+        stripe.remove(key);
+        entry = null;
+      }
+    }
+
+    if (entry == null) {
+      misses.increment();
+      return null;
+    } else {
+      hits.increment();
+      return entry.claims();
+    }
+  }
+
+  /**
+   * Stores the claims of a token in the cache. Expired tokens are not stored. The claims are copied
+   * into unmodifiable maps and lists, nested ones included, because the same map is returned to
+   * every request with the token, so a script can't change what the next request sees.
+   *
+   * @param token String JWT.
+   * @param claims Claims of the token.
+   * @return The unmodifiable copy of the claims, which is the one stored.
+   */
+  public Map<String, Object> put(String token, Map<String, Object> claims) {
+    claims = immutableMap(claims);
+    var now = System.currentTimeMillis();
+    var expiresAt = now + maxTimeToLive.toMillis();
+
+    if (claims.get("exp") instanceof Date expiration) {
+      expiresAt = Math.min(expiresAt, expiration.getTime());
+    }
+
+    if (expiresAt <= now) {
+      return claims;
+    }
+
+    var key = hash(token);
+    var stripe = getStripe(key);
+
+    synchronized (stripe) {
+      stripe.put(key, new Entry(claims, expiresAt));
+    }
+
+    return claims;
+  }
+
+  /**
+   * Copies a map of claims into an unmodifiable map, copying its nested maps and lists too. The
+   * order of the claims is kept, and null values are allowed.
+   *
+   * @param claims Claims to copy.
+   * @return The unmodifiable copy of the claims.
+   */
+  private static Map<String, Object> immutableMap(Map<?, ?> claims) {
+    var copy = new LinkedHashMap<String, Object>(claims.size() * 4 / 3 + 1);
+
+    for (var claim : claims.entrySet()) {
+      copy.put(String.valueOf(claim.getKey()), immutableValue(claim.getValue()));
+    }
+
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /**
+   * Copies a claim's value, if it's a map or a list, into an unmodifiable one.
+   *
+   * @param value Value of the claim.
+   * @return The unmodifiable copy of the value, or the value itself if it's not a map or a list.
+   */
+  private static Object immutableValue(Object value) {
+    if (value instanceof Map<?, ?> map) {
+      return immutableMap(map);
+    } else if (value instanceof List<?> list) {
+      var copy = new ArrayList<>(list.size());
+
+      for (var element : list) {
+        copy.add(immutableValue(element));
+      }
+
+      return Collections.unmodifiableList(copy);
+    }
+
+    return value;
+  }
+
+  /**
+   * Obtains the number of requests of tokens found in the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Obtains the number of requests of tokens not found in the cache.
+   *
+   * @return The number of cache misses.
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Obtains the number of tokens in the cache, including expired ones not evicted yet.
+   *
+   * @return The number of entries of the cache.
+   */
+  public int size() {
+    var size = 0;
+
+    for (var stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+
+    return size;
+  }
+
+  /** Removes all entries of the cache. */
+  public void clear() {
+    for (var stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  /**
+   * Obtains the stripe where a key is stored.
+   *
+   * @param key Hash of a token.
+   * @return The stripe of the key.
+   */
+  private Stripe getStripe(String key) {
+    var hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+  }
+
+  /**
+   * Generates the key of a token.
+   *
+   * @param token String JWT.
+   * @return The SHA-256 hash of the token, in base 64.
+   */
+  private static String hash(String token) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder()
+          .encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Claims of a cached token.
+   *
+   * @param claims Claims of the token.
+   * @param expiresAt Time, in milliseconds since epoch, when the entry expires.
+   */
+  private record Entry(Map<String, Object> claims, long expiresAt) {}
+
+  /** Stripe of the cache, which evicts its least recently used entry when it's full. */
+  private static class Stripe extends LinkedHashMap<String, Entry> {
+
+    private final int maxSize;
+
+    Stripe(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
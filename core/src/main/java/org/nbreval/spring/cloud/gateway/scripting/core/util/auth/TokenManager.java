@@ -1,21 +1,170 @@
 package org.nbreval.spring.cloud.gateway.scripting.core.util.auth;
 
 import com.nimbusds.jwt.SignedJWT;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.ParseException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Util class used to operate with JWT */
 public class TokenManager {
 
   /**
-   * Parses a base-64 JWT into a Map of claims.
+   * Caches of the claims of the tokens already parsed, by their settings. Each cache is shared by
+   * all filters with the same settings, because the same token is usually received many times
+   * during its lifetime.
+   */
+  private static final Map<CacheSettings, TokenClaimsCache> claimsCaches =
+      new ConcurrentHashMap<>();
+
+  /** View of the caches of parsed claims, to read their statistics. */
+  private static final Collection<TokenClaimsCache> claimsCachesView =
+      Collections.unmodifiableCollection(claimsCaches.values());
+
+  /** Verifiers of tokens, by the location of their JWKS. */
+  private static final Map<String, TokenVerifier> verifiers = new ConcurrentHashMap<>();
+
+  /**
+   * Parses a base-64 JWT into a Map of claims, using the cache with the default settings.
    *
    * @param token String JWT to obtain its claims.
-   * @return The token's claims as a Map object.
+   * @return The token's claims as an unmodifiable Map object.
    * @throws ParseException If is not possible to parse the token.
    */
   public static Map<String, Object> getTokenClaims(String token) throws ParseException {
-    var jwt = SignedJWT.parse(token);
-    return jwt.getJWTClaimsSet().getClaims();
+    return getTokenClaims(token, getClaimsCache());
+  }
+
+  /**
+   * Parses a base-64 JWT into a Map of claims. Claims of tokens already parsed are obtained from a
+   * cache, so the returned map is shared between requests, and it's unmodifiable, with its nested
+   * maps and lists.
+   *
+   * @param token String JWT to obtain its claims.
+   * @param claimsCache Cache of the claims of parsed tokens.
+   * @return The token's claims as an unmodifiable Map object.
+   * @throws ParseException If is not possible to parse the token.
+   */
+  public static Map<String, Object> getTokenClaims(String token, TokenClaimsCache claimsCache)
+      throws ParseException {
+    var claims = claimsCache.get(token);
+
+    if (claims == null) {
+      var jwt = SignedJWT.parse(token);
+      claims = claimsCache.put(token, jwt.getJWTClaimsSet().getClaims());
+    }
+
+    return claims;
+  }
+
+  /**
+   * Decodes the payload of a base-64 JWT, without parsing it, so its claims are read lazily.
+   * Neither the header nor the signature of the token are decoded.
+   *
+   * @param token String JWT to obtain its claims.
+   * @return The token's claims, read when they're required.
+   * @throws ParseException If the token doesn't have three parts or its payload is not valid base
+   *     64.
+   */
+  public static LazyTokenClaims getLazyTokenClaims(String token) throws ParseException {
+    var payloadStart = token.indexOf('.');
+    var payloadEnd = payloadStart >= 0 ? token.indexOf('.', payloadStart + 1) : -1;
+
+    if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+      throw new ParseException("Invalid serialized JWT, it must have three parts", 0);
+    }
+
+    try {
+      return new LazyTokenClaims(
+          Base64.getUrlDecoder().decode(token.substring(payloadStart + 1, payloadEnd)));
+    } catch (IllegalArgumentException e) {
+      throw new ParseException("Invalid JWT payload: " + e.getMessage(), payloadStart + 1);
+    }
   }
+
+  /**
+   * Obtains the verifier of tokens signed with the keys of a JWKS. Verifiers are shared by all
+   * filters using the same JWKS, so its keys and verified tokens are loaded only once.
+   *
+   * @param jwksLocation Location of the JWKS, as a file system path or a classpath path with prefix
+   *     "classpath:".
+   * @param reloadInterval Time between reloads of the JWKS. If the verifier already exists, the
+   *     interval used to create it is kept, like the settings of its cache.
+   * @param cacheMaxSize Maximum number of verified tokens whose claims are cached.
+   * @param cacheMaxTimeToLive Maximum time the claims of a verified token are cached.
+   * @return The verifier of tokens.
+   * @throws IOException If the JWKS can't be read.
+   * @throws ParseException If the JWKS is not valid.
+   */
+  public static TokenVerifier getTokenVerifier(
+      String jwksLocation, Duration reloadInterval, int cacheMaxSize, Duration cacheMaxTimeToLive)
+      throws IOException, ParseException {
+    try {
+      return verifiers.computeIfAbsent(
+          jwksLocation,
+          location -> {
+            try {
+              return new TokenVerifier(
+                  location, reloadInterval, new TokenClaimsCache(cacheMaxSize, cacheMaxTimeToLive));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            } catch (ParseException e) {
+              throw new IllegalArgumentException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (IllegalArgumentException e) {
+      if (e.getCause() instanceof ParseException parseException) {
+        throw parseException;
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Obtains the cache of parsed claims with the default settings.
+   *
+   * @return The cache of parsed claims.
+   */
+  public static TokenClaimsCache getClaimsCache() {
+    return getClaimsCache(
+        TokenClaimsCache.DEFAULT_MAX_SIZE, TokenClaimsCache.DEFAULT_MAX_TIME_TO_LIVE);
+  }
+
+  /**
+   * Obtains the cache of parsed claims with some settings, creating it if it doesn't exist.
+   *
+   * @param maxSize Maximum number of tokens stored in the cache.
+   * @param maxTimeToLive Maximum time an entry is kept, even if the token has not expired yet.
+   * @return The cache of parsed claims, shared by all filters with the same settings.
+   */
+  public static TokenClaimsCache getClaimsCache(int maxSize, Duration maxTimeToLive) {
+    return claimsCaches.computeIfAbsent(
+        new CacheSettings(maxSize, maxTimeToLive),
+        settings -> new TokenClaimsCache(settings.maxSize(), settings.maxTimeToLive()));
+  }
+
+  /**
+   * Obtains all caches of parsed claims, to read their statistics.
+   *
+   * @return The caches of parsed claims, including the ones created later.
+   */
+  public static Collection<TokenClaimsCache> getClaimsCaches() {
+    return claimsCachesView;
+  }
+
+  /**
+   * Settings of a cache of parsed claims.
+   *
+   * @param maxSize Maximum number of tokens stored in the cache.
+   * @param maxTimeToLive Maximum time an entry is kept.
+   */
+  private record CacheSettings(int maxSize, Duration maxTimeToLive) {}
 }
@@ -0,0 +1,198 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.AsymmetricJWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.SecretJWK;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import java.io.IOException;
+import java.security.Key;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.file.FileManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.validation.PathValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies the signature of tokens against the keys of a JWKS stored in a file or in the classpath.
+ * Keys are parsed once and stored by their identifier, the JWKS is loaded again periodically, and
+ * the claims of verified tokens are cached until they expire, so each token is usually parsed and
+ * verified only once during its lifetime.
+ */
+public class TokenVerifier {
+
+  /** Logger object used to show some information in application's log. */
+  private static final Logger log = LoggerFactory.getLogger(TokenVerifier.class);
+
+  /** Identifier used to store the key of a JWKS when the key doesn't have identifier. */
+  private static final String NO_KEY_ID = "";
+
+  private static final DefaultJWSVerifierFactory verifierFactory = new DefaultJWSVerifierFactory();
+
+  /** Verifier of the expiration and not-before time of tokens. */
+  private static final DefaultJWTClaimsVerifier<?> claimsVerifier =
+      new DefaultJWTClaimsVerifier<>(null, null);
+
+  /** Location of the JWKS, as a file system path or a classpath path with prefix "classpath:". */
+  private final String location;
+
+  /** Time between reloads of the JWKS. */
+  private final Duration reloadInterval;
+
+  /** Claims of the tokens already verified. */
+  private final TokenClaimsCache verifiedClaims;
+
+  /** Keys of the JWKS, by their identifier. */
+  private volatile Map<String, Key> keys;
+
+  /** Time, as returned by {@link System#nanoTime()}, when the JWKS must be loaded again. */
+  private volatile long nextReload;
+
+  /**
+   * Generates the verifier, loading the JWKS.
+   *
+   * @param location Location of the JWKS, as a file system path or a classpath path with prefix
+   *     "classpath:".
+   * @param reloadInterval Time between reloads of the JWKS.
+   * @param verifiedClaims Cache of the claims of verified tokens, used only by this verifier.
+   * @throws IOException If the JWKS can't be read.
+   * @throws ParseException If the JWKS is not valid.
+   */
+  public TokenVerifier(String location, Duration reloadInterval, TokenClaimsCache verifiedClaims)
+      throws IOException, ParseException {
+    this.location = location;
+    this.reloadInterval = reloadInterval;
+    this.verifiedClaims = verifiedClaims;
+    this.keys = loadKeys();
+    this.nextReload = System.nanoTime() + reloadInterval.toNanos();
+  }
+
+  /**
+   * Verifies a token and obtains its claims. The token is verified only the first time, and its
+   * claims are obtained from a cache after that, until the token expires.
+   *
+   * @param token String JWT to verify.
+   * @return The claims of the token, as an unmodifiable map shared between requests.
+   * @throws ParseException If the token can't be parsed.
+   * @throws JOSEException If the signature of the token is not valid, its key is not in the JWKS,
+   *     or the token has expired.
+   */
+  public Map<String, Object> verify(String token) throws ParseException, JOSEException {
+    reloadIfRequired();
+
+    var claims = verifiedClaims.get(token);
+
+    if (claims == null) {
+      var jwt = SignedJWT.parse(token);
+      var keyId = jwt.getHeader().getKeyID();
+      var currentKeys = keys;
+      var key = currentKeys.get(keyId != null ? keyId : NO_KEY_ID);
+
+      if (key == null && keyId == null && currentKeys.size() == 1) {
+        key = currentKeys.values().iterator().next();
+      }
+
+      if (key == null) {
+        throw new JOSEException("There isn't any key with identifier " + keyId);
+      }
+
+      if (!jwt.verify(verifierFactory.createJWSVerifier(jwt.getHeader(), key))) {
+        throw new JOSEException("Invalid token signature");
+      }
+
+      var claimsSet = jwt.getJWTClaimsSet();
+
+      try {
+        claimsVerifier.verify(claimsSet, null);
+      } catch (BadJWTException e) {
+        throw new JOSEException(e.getMessage(), e);
+      }
+
+      claims = verifiedClaims.put(token, claimsSet.getClaims());
+    }
+
+    return claims;
+  }
+
+  /**
+   * Loads the JWKS again if the reload interval has been exceeded. If the JWKS can't be loaded, the
+   * previous keys are kept. When keys change, cached verifications are discarded.
+   */
+  private void reloadIfRequired() {
+    if (System.nanoTime() - nextReload < 0) {
+      return;
+    }
+
+    synchronized (this) {
+      if (System.nanoTime() - nextReload < 0) {
+        return;
+      }
+
+      try {
+        var newKeys = loadKeys();
+
+        if (!newKeys.equals(keys)) {
+          keys = newKeys;
+          verifiedClaims.clear();
+          log.info("JWKS {} reloaded", location);
+        }
+      } catch (IOException | ParseException e) {
+        log.error("Unable to reload JWKS {}, keeping the previous keys", location, e);
+      }
+
+      nextReload = System.nanoTime() + reloadInterval.toNanos();
+    }
+  }
+
+  /**
+   * Reads and parses the keys of the JWKS. Keys which can't be used to verify signatures, like
+   * private-only or unsupported keys, are ignored.
+   *
+   * @return The keys of the JWKS, by their identifier.
+   * @throws IOException If the JWKS can't be read.
+   * @throws ParseException If the JWKS is not valid.
+   */
+  private Map<String, Key> loadKeys() throws IOException, ParseException {
+    String content;
+
+    if (PathValidator.isValidClasspathPath(location)) {
+      content = FileManager.getResourceFileContentAsText(location.replaceFirst("classpath:/?", ""));
+    } else if (PathValidator.isValidRegularPath(location)) {
+      content = FileManager.getRegularFileContentAsText(location);
+    } else {
+      throw new IOException("JWKS not found at " + location);
+    }
+
+    var loadedKeys = new HashMap<String, Key>();
+
+    for (var jwk : JWKSet.parse(content).getKeys()) {
+      try {
+        Key key;
+
+        if (jwk instanceof AsymmetricJWK asymmetricJwk) {
+          key = asymmetricJwk.toPublicKey();
+        } else if (jwk instanceof SecretJWK secretJwk) {
+          key = secretJwk.toSecretKey();
+        } else {
+          key = null;
+        }
+
+        if (key != null) {
+          loadedKeys.put(jwk.getKeyID() != null ? jwk.getKeyID() : NO_KEY_ID, key);
+        } else {
+          log.warn("Ignoring key {} of JWKS {}, it's not supported", jwk.getKeyID(), location);
+        }
+      } catch (JOSEException e) {
+        log.warn("Ignoring key {} of JWKS {}, it's not supported", jwk.getKeyID(), location, e);
+      }
+    }
+
+    return Map.copyOf(loadedKeys);
+  }
+}
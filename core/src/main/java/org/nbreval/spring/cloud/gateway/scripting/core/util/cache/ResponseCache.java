@@ -0,0 +1,399 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptFilterMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Bounded in-memory cache of the upstream responses of a route, used for the requests which a
+ * script marks as cacheable. Hits are written directly to the exchange's response, without calling
+ * the upstream service, and misses capture the upstream response while it's written to the client.
+ * Concurrent misses for the same key are coalesced: only the first one calls the upstream service,
+ * and the rest wait for its response.
+ *
+ * <p>Like the cache of token claims, it's split into stripes, each one with its own lock and
+ * evicting its least recently used entries when it exceeds its share of the maximum number of
+ * entries or bytes. Only complete responses with status 200, without cookies and with a body not
+ * bigger than the maximum size of an entry are cached.
+ */
+public class ResponseCache {
+
+  /** Number of stripes of the cache. It must be a power of two. */
+  private static final int STRIPES = 16;
+
+  /** Stripes of the cache, each one with a maximum number of entries and bytes. */
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  /** Requests calling the upstream service for a key, by key. */
+  private final Map<String, Sinks.One<CachedResponse>> pending = new ConcurrentHashMap<>();
+
+  /** Maximum size, in bytes, of the body of a cached response. */
+  private final int maxEntrySize;
+
+  /** Metrics of the filter which uses the cache. */
+  private final ScriptFilterMetrics metrics;
+
+  /**
+   * Generates an empty cache.
+   *
+   * @param maxEntries Maximum number of responses stored in the cache.
+   * @param maxBytes Maximum number of bytes of the bodies stored in the cache.
+   * @param maxEntrySize Maximum size, in bytes, of the body of a cached response.
+   * @param metrics Metrics of the filter which uses the cache.
+   */
+  public ResponseCache(
+      int maxEntries, long maxBytes, int maxEntrySize, ScriptFilterMetrics metrics) {
+    var stripeEntries = Math.max(maxEntries / STRIPES, 1);
+    var stripeBytes = Math.max(maxBytes / STRIPES, 0);
+
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(stripeEntries, stripeBytes);
+    }
+
+    this.maxEntrySize = (int) Math.min(maxEntrySize, stripeBytes);
+    this.metrics = metrics;
+  }
+
+  /**
+   * Answers a request from the cache, or continues the filter chain and caches its response.
+   *
+   * @param key Key of the request's response, set by the script.
+   * @param timeToLive Time the response is kept in the cache.
+   * @param exchange Exchange with the request, already modified by the script.
+   * @param chain Filter chain to continue.
+   * @return The result of writing the cached response, or of the filter chain.
+   */
+  public Mono<Void> filter(
+      @NonNull String key,
+      @NonNull Duration timeToLive,
+      @NonNull ServerWebExchange exchange,
+      @NonNull GatewayFilterChain chain) {
+    var cached = get(key);
+
+    if (cached != null) {
+      metrics.recordCacheHit();
+      return cached.writeTo(exchange.getResponse());
+    }
+
+    var sink = Sinks.<CachedResponse>one();
+    var current = pending.putIfAbsent(key, sink);
+
+    if (current != null) {
+      metrics.recordCacheCoalesced();
+      return current
+          .asMono()
+          .singleOptional()
+          .flatMap(
+              response ->
+                  response.isPresent()
+                      ? response.get().writeTo(exchange.getResponse())
+                      : chain.filter(exchange));
+    }
+
+    // The previous request for the key may have finished between both checks
+    cached = get(key);
+
+    if (cached != null) {
+      pending.remove(key, sink);
+      sink.tryEmitValue(cached);
+      metrics.recordCacheHit();
+      return cached.writeTo(exchange.getResponse());
+    }
+
+    metrics.recordCacheMiss();
+    var capturingResponse = new CapturingResponse(exchange.getResponse(), maxEntrySize);
+
+    return chain
+        .filter(exchange.mutate().response(capturingResponse).build())
+        .doOnSuccess(v -> complete(key, sink, capturingResponse.toCachedResponse(timeToLive)))
+        .doOnError(e -> complete(key, sink, null))
+        .doOnCancel(() -> complete(key, sink, null));
+  }
+
+  /**
+   * Finishes the request which called the upstream service for a key, caching its response and
+   * passing it to the coalesced requests. It's run before the request's completion is propagated,
+   * so the next request for the key finds the response in the cache.
+   *
+   * @param key Key of the response.
+   * @param sink Sink where the coalesced requests wait for the response.
+   * @param response Response to cache, or null if it can't be cached.
+   */
+  private void complete(String key, Sinks.One<CachedResponse> sink, CachedResponse response) {
+    if (response != null) {
+      put(key, response);
+    }
+
+    pending.remove(key, sink);
+
+    if (response != null) {
+      sink.tryEmitValue(response);
+    } else {
+      sink.tryEmitEmpty();
+    }
+  }
+
+  /**
+   * Obtains a response from the cache.
+   *
+   * @param key Key of the response.
+   * @return The response, or null if it's not cached or has expired.
+   */
+  public CachedResponse get(@NonNull String key) {
+    var stripe = getStripe(key);
+
+    synchronized (stripe) {
+      var response = stripe.get(key);
+
+      if (response != null && response.isExpired(System.nanoTime())) {
+        stripe.remove(key);
+        response = null;
+      }
+
+      return response;
+    }
+  }
+
+  /**
+   * Stores a response in the cache, evicting the least recently used ones of its stripe if it's
+   * full.
+   *
+   * @param key Key of the response.
+   * @param response Response to store.
+   */
+  public void put(@NonNull String key, @NonNull CachedResponse response) {
+    var stripe = getStripe(key);
+
+    synchronized (stripe) {
+      stripe.put(key, response);
+    }
+  }
+
+  /**
+   * Obtains the number of responses in the cache, including expired ones not evicted yet.
+   *
+   * @return The number of entries of the cache.
+   */
+  public int size() {
+    var size = 0;
+
+    for (var stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Obtains the number of bytes of the bodies in the cache.
+   *
+   * @return The number of bytes of the cache.
+   */
+  public long bytes() {
+    var bytes = 0L;
+
+    for (var stripe : stripes) {
+      synchronized (stripe) {
+        bytes += stripe.bytes;
+      }
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Obtains the stripe where a key is stored.
+   *
+   * @param key Key of a response.
+   * @return The stripe of the key.
+   */
+  private Stripe getStripe(String key) {
+    var hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+  }
+
+  /**
+   * Response stored in the cache.
+   *
+   * @param status Status code of the response.
+   * @param headers Headers of the response.
+   * @param body Body of the response.
+   * @param expiresAt Moment when the response expires, in nanoseconds of {@link System#nanoTime()}.
+   */
+  public record CachedResponse(
+      HttpStatusCode status, HttpHeaders headers, byte[] body, long expiresAt) {
+
+    /**
+     * Indicates if the response has expired.
+     *
+     * @param now Current moment, in nanoseconds of {@link System#nanoTime()}.
+     * @return True if the response has expired, else false.
+     */
+    boolean isExpired(long now) {
+      return now - expiresAt >= 0;
+    }
+
+    /**
+     * Writes the response to the exchange's response. Headers are copied, so filters changing the
+     * exchange's response don't modify the cached one.
+     *
+     * @param response Exchange's response, not committed yet.
+     * @return The result of writing the response.
+     */
+    public Mono<Void> writeTo(@NonNull ServerHttpResponse response) {
+      response.setStatusCode(status);
+      var responseHeaders = response.getHeaders();
+      headers.forEach((key, values) -> responseHeaders.put(key, new ArrayList<>(values)));
+      responseHeaders.remove(HttpHeaders.TRANSFER_ENCODING);
+      responseHeaders.setContentLength(body.length);
+
+      return body.length > 0
+          ? response.writeWith(Mono.just(response.bufferFactory().wrap(body)))
+          : response.setComplete();
+    }
+  }
+
+  /**
+   * Decorator of the exchange's response which copies its body while it's written to the client,
+   * without delaying it. The copy is discarded as soon as the body exceeds the maximum size.
+   */
+  private static class CapturingResponse extends ServerHttpResponseDecorator {
+
+    /** Maximum size, in bytes, of the copied body. */
+    private final int maxSize;
+
+    /** Copy of the body written so far, or null if the response can't be cached. */
+    private ByteArrayOutputStream capturedBody = new ByteArrayOutputStream();
+
+    CapturingResponse(ServerHttpResponse delegate, int maxSize) {
+      super(delegate);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+      return super.writeWith(Flux.from(body).doOnNext(this::capture));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+      // Streamed responses are never cached
+      capturedBody = null;
+      return super.writeAndFlushWith(body);
+    }
+
+    /**
+     * Copies a buffer of the body, before it's written and released.
+     *
+     * @param buffer Buffer of the body.
+     */
+    private synchronized void capture(DataBuffer buffer) {
+      if (capturedBody == null) {
+        return;
+      }
+
+      var length = buffer.readableByteCount();
+
+      if (capturedBody.size() + length > maxSize) {
+        capturedBody = null;
+        return;
+      }
+
+      var bytes = new byte[length];
+      buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, length);
+      capturedBody.writeBytes(bytes);
+    }
+
+    /**
+     * Generates the cached version of the response, once it has been written.
+     *
+     * @param timeToLive Time the response is kept in the cache.
+     * @return The cached response, or null if the response can't be cached.
+     */
+    synchronized CachedResponse toCachedResponse(Duration timeToLive) {
+      var headers = getHeaders();
+
+      if (capturedBody == null
+          || getStatusCode() == null
+          || getStatusCode().value() != HttpStatus.OK.value()
+          || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+        return null;
+      }
+
+      var cachedHeaders = new HttpHeaders();
+      headers.forEach((key, values) -> cachedHeaders.put(key, new ArrayList<>(values)));
+
+      return new CachedResponse(
+          getStatusCode(),
+          cachedHeaders,
+          capturedBody.toByteArray(),
+          System.nanoTime() + timeToLive.toNanos());
+    }
+  }
+
+  /**
+   * Stripe of the cache, which evicts its least recently used entries when it exceeds its maximum
+   * number of entries or bytes.
+   */
+  private static class Stripe extends LinkedHashMap<String, CachedResponse> {
+
+    private final int maxSize;
+
+    private final long maxBytes;
+
+    /** Number of bytes of the bodies in the stripe. */
+    private long bytes;
+
+    Stripe(int maxSize, long maxBytes) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public CachedResponse put(String key, CachedResponse value) {
+      var previous = super.put(key, value);
+      bytes += value.body().length - (previous != null ? previous.body().length : 0);
+
+      var iterator = values().iterator();
+
+      while ((size() > maxSize || bytes > maxBytes) && iterator.hasNext()) {
+        bytes -= iterator.next().body().length;
+        iterator.remove();
+      }
+
+      return previous;
+    }
+
+    @Override
+    public CachedResponse remove(Object key) {
+      var removed = super.remove(key);
+
+      if (removed != null) {
+        bytes -= removed.body().length;
+      }
+
+      return removed;
+    }
+  }
+}
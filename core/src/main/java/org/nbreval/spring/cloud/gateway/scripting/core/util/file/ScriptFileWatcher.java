@@ -0,0 +1,203 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches script files, using a {@link WatchService}, and notifies their changes. Changes are
+ * debounced, so a file written in several steps produces a single notification, which is run in a
+ * background thread.
+ *
+ * <p>Each watched file is associated to a target object, usually the script manager which runs the
+ * file, which is only weakly referenced, so targets of discarded filters are not kept by the
+ * watcher and stop being notified.
+ */
+public class ScriptFileWatcher implements AutoCloseable {
+
+  /** Logger object used to show some information in application's log. */
+  private static final Logger log = LoggerFactory.getLogger(ScriptFileWatcher.class);
+
+  /** Time to wait since the last change of a file before notifying it. */
+  private final Duration debounce;
+
+  private final WatchService watchService;
+
+  /** Executor used to debounce changes and run notifications. */
+  private final ScheduledExecutorService executor;
+
+  /** Registrations of each watched file, by absolute path. */
+  private final Map<Path, List<Registration<?>>> registrations = new ConcurrentHashMap<>();
+
+  /** Notifications waiting for the debounce time of each file, by absolute path. */
+  private final Map<Path, ScheduledFuture<?>> pendingNotifications = new ConcurrentHashMap<>();
+
+  /** Directories already registered in the watch service. */
+  private final Map<Path, Boolean> watchedDirectories = new ConcurrentHashMap<>();
+
+  /**
+   * Generates the watcher, and starts the background thread which receives file system events.
+   *
+   * @param debounce Time to wait since the last change of a file before notifying it.
+   * @throws IOException If the watch service can't be created.
+   */
+  public ScriptFileWatcher(Duration debounce) throws IOException {
+    this.debounce = debounce;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("script-file-watcher-notifier").daemon().factory());
+
+    Thread.ofPlatform().name("script-file-watcher").daemon().start(this::processEvents);
+  }
+
+  /**
+   * Starts watching a file.
+   *
+   * @param <T> Type of the target notified when the file changes.
+   * @param file Path of the file to watch.
+   * @param target Object notified when the file changes. It's weakly referenced, so the file stops
+   *     being watched for it when it's discarded.
+   * @param onChange Action run with the target when the file changes. It must not hold a strong
+   *     reference to the target.
+   * @throws IOException If the directory of the file can't be watched.
+   */
+  public <T> void watch(Path file, T target, Consumer<T> onChange) throws IOException {
+    var absoluteFile = file.toAbsolutePath().normalize();
+    var directory = absoluteFile.getParent();
+
+    if (watchedDirectories.putIfAbsent(directory, Boolean.TRUE) == null) {
+      directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    }
+
+    registrations
+        .computeIfAbsent(absoluteFile, key -> new CopyOnWriteArrayList<>())
+        .add(new Registration<>(new WeakReference<>(target), onChange));
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+    executor.shutdownNow();
+  }
+
+  /** Receives the events of the watch service until it's closed. */
+  private void processEvents() {
+    try {
+      while (true) {
+        var key = watchService.take();
+        var directory = (Path) key.watchable();
+
+        for (var event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW) {
+            registrations.keySet().stream()
+                .filter(file -> file.getParent().equals(directory))
+                .forEach(this::scheduleNotification);
+          } else {
+            var file = directory.resolve((Path) event.context());
+
+            if (registrations.containsKey(file)) {
+              scheduleNotification(file);
+            }
+          }
+        }
+
+        key.reset();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      log.debug("Script file watcher closed");
+    }
+  }
+
+  /**
+   * Schedules the notification of a changed file after the debounce time, replacing the previous
+   * notification of the file if it's still waiting.
+   *
+   * @param file Absolute path of the changed file.
+   */
+  private void scheduleNotification(Path file) {
+    pendingNotifications.compute(
+        file,
+        (key, previous) -> {
+          if (previous != null) {
+            previous.cancel(false);
+          }
+
+          return executor.schedule(
+              () -> {
+                pendingNotifications.remove(key);
+                notifyChange(key);
+              },
+              debounce.toMillis(),
+              TimeUnit.MILLISECONDS);
+        });
+  }
+
+  /**
+   * Notifies the change of a file to its registrations, and removes those whose target has been
+   * discarded.
+   *
+   * @param file Absolute path of the changed file.
+   */
+  private void notifyChange(Path file) {
+    var fileRegistrations = registrations.get(file);
+
+    if (fileRegistrations == null) {
+      return;
+    }
+
+    fileRegistrations.removeIf(registration -> !registration.notifyChange());
+  }
+
+  /**
+   * Registration of a target notified when a file changes.
+   *
+   * @param <T> Type of the target.
+   * @param target Weak reference to the target.
+   * @param onChange Action run with the target when the file changes.
+   */
+  private record Registration<T>(WeakReference<T> target, Consumer<T> onChange) {
+
+    /**
+     * Runs the action of the registration, if its target has not been discarded.
+     *
+     * @return True if the target is still alive, else false.
+     */
+    boolean notifyChange() {
+      var value = target.get();
+
+      if (value == null) {
+        return false;
+      }
+
+      try {
+        onChange.accept(value);
+      } catch (RuntimeException e) {
+        log.error("Error notifying the change of a script file", e);
+      }
+
+      return true;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.NonNull;
+
+/**
+ * Wrapper object used to make easy interact with a chunk of the request's body from scripts. The
+ * chunk's content is only copied when the script reads it, and chunks not modified by the script
+ * are passed to the downstream request as they are.
+ */
+public class ChunkWrapper {
+
+  /** The actual chunk, or null if it has been replaced by the script. */
+  private DataBuffer buffer;
+
+  /** Factory used to generate the buffer of the chunk when the script replaces its content. */
+  private final DataBufferFactory bufferFactory;
+
+  /** Number of bytes of the body received before this chunk. */
+  private final long offset;
+
+  /** Indicates if it's the empty chunk generated after the last chunk of the body. */
+  private final boolean last;
+
+  /** Content set by the script, or null if it has not been replaced. */
+  private byte[] replacement;
+
+  /**
+   * Generates the wrapper of a chunk.
+   *
+   * @param buffer Chunk of the body.
+   * @param bufferFactory Factory used to generate the buffer of the chunk when it's replaced.
+   * @param offset Number of bytes of the body received before this chunk.
+   * @param last Indicates if it's the empty chunk generated after the last chunk of the body.
+   */
+  public ChunkWrapper(
+      @NonNull DataBuffer buffer,
+      @NonNull DataBufferFactory bufferFactory,
+      long offset,
+      boolean last) {
+    this.buffer = buffer;
+    this.bufferFactory = bufferFactory;
+    this.offset = offset;
+    this.last = last;
+  }
+
+  /**
+   * Obtains the content of the chunk, as bytes. The content is copied, so changes on the returned
+   * array don't modify the chunk.
+   *
+   * @return The content of the chunk.
+   */
+  public byte[] getBytes() {
+    if (replacement != null) {
+      return replacement.clone();
+    }
+
+    var bytes = new byte[buffer.readableByteCount()];
+    buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+    return bytes;
+  }
+
+  /**
+   * Obtains the content of the chunk, as an UTF-8 string. A multi-byte character may be split
+   * between two chunks, so scripts which need whole characters must join chunks in the context.
+   *
+   * @return The content of the chunk.
+   */
+  public String getText() {
+    if (replacement != null) {
+      return new String(replacement, StandardCharsets.UTF_8);
+    }
+
+    return buffer.toString(
+        buffer.readPosition(), buffer.readableByteCount(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Obtains the size of the chunk, in bytes.
+   *
+   * @return The size of the chunk.
+   */
+  public int getSize() {
+    return replacement != null ? replacement.length : buffer.readableByteCount();
+  }
+
+  /**
+   * Obtains the number of bytes of the original body received before this chunk.
+   *
+   * @return The offset of the chunk in the original body.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Indicates if it's the empty chunk generated after the last chunk of the body, which scripts can
+   * fill to append content at the end of the body.
+   *
+   * @return True if it's the chunk after the end of the body, else false.
+   */
+  public boolean isLast() {
+    return last;
+  }
+
+  /**
+   * Replaces the content of the chunk.
+   *
+   * @param bytes New content of the chunk.
+   */
+  public void setBytes(@NonNull byte[] bytes) {
+    this.replacement = bytes.clone();
+  }
+
+  /**
+   * Replaces the content of the chunk with an UTF-8 string.
+   *
+   * @param text New content of the chunk.
+   */
+  public void setText(@NonNull String text) {
+    this.replacement = text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Obtains the buffer to pass to the downstream request. If the script has replaced the content,
+   * the original buffer is released and a new one is generated.
+   *
+   * @return The buffer of the chunk.
+   */
+  public DataBuffer toDataBuffer() {
+    if (replacement != null) {
+      release();
+      buffer = bufferFactory.wrap(replacement);
+      replacement = null;
+    }
+
+    return buffer;
+  }
+
+  /** Releases the original buffer of the chunk, when it's dropped by the script. */
+  public void release() {
+    if (buffer != null) {
+      DataBufferUtils.release(buffer);
+      buffer = null;
+    }
+  }
+}
@@ -1,16 +1,33 @@
 package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
 
+import com.nimbusds.jose.JOSEException;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ClaimsDecoder;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.ClaimPath;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.LazyTokenClaims;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenClaimsCache;
 import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenVerifier;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.json.JsonReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.lang.NonNull;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -23,26 +40,120 @@ public class RequestWrapper {
   /** Logger object used to show some information in application's log. */
   private static final Logger log = LoggerFactory.getLogger(RequestWrapper.class);
 
-  private static final Pattern numberPattern = Pattern.compile("\\d+");
-
   /** The actual request entity. */
   private @NonNull ServerHttpRequest request;
 
+  /**
+   * Writable copy of the request's headers, with the changes made by the script. It's created with
+   * the first change, and applied to the request only once, when the exchange is mutated, instead
+   * of rebuilding the request for each change.
+   */
+  private HttpHeaders headers;
+
+  /**
+   * Writable copy of the request's query params, still encoded, with the changes made by the
+   * script. It's parsed from the request's URI with the first change, and the URI is rendered only
+   * once, when the exchange is mutated, instead of parsing and rendering it for each change.
+   */
+  private MultiValueMap<String, String> queryParams;
+
+  /** Decoded view of {@link RequestWrapper#queryParams}, computed when it's read after a change. */
+  private MultiValueMap<String, String> decodedQueryParams;
+
+  /** Mode used to read the claims of the authorization header's JWT. */
+  private final ClaimsDecoder claimsDecoder;
+
+  /** Verifier of the authorization header's JWT, or null if verification is not configured. */
+  private final TokenVerifier tokenVerifier;
+
+  /** Cache of the claims of parsed tokens, used when claims are fully decoded. */
+  private final TokenClaimsCache claimsCache;
+
   /** Claims obtained from authorization header. */
   private Map<String, Object> claims;
 
+  /** Claims obtained from authorization header, read lazily, when the decoder is lazy. */
+  private LazyTokenClaims lazyClaims;
+
+  /** Claims obtained from authorization header, after verifying the token's signature. */
+  private Map<String, Object> verifiedClaims;
+
+  /** Indicates if the token has been already verified, even if it's not valid. */
+  private boolean tokenVerified;
+
+  /**
+   * Buffered body of the request, shared with the downstream request, or null if the filter has not
+   * buffered it.
+   */
+  private final DataBuffer body;
+
+  /** Body of the request parsed as JSON, parsed the first time it's required. */
+  private Object jsonBody;
+
+  /** Key of the request's response in the route's cache, or null if it's not cacheable. */
+  private String cacheKey;
+
+  /** Time the request's response is kept in the route's cache. */
+  private Duration cacheTimeToLive;
+
   public RequestWrapper(@NonNull ServerHttpRequest request) {
+    this(request, RequestWrapperSettings.DEFAULT);
+  }
+
+  public RequestWrapper(
+      @NonNull ServerHttpRequest request, @NonNull RequestWrapperSettings settings) {
+    this(request, settings, null);
+  }
+
+  /**
+   * Generates the wrapper of a request whose body has been buffered.
+   *
+   * @param request Request to wrap.
+   * @param settings Settings of the filter's wrappers.
+   * @param body Buffered body of the request, or null if the filter has not buffered it.
+   */
+  public RequestWrapper(
+      @NonNull ServerHttpRequest request,
+      @NonNull RequestWrapperSettings settings,
+      DataBuffer body) {
     this.request = request;
+    this.claimsDecoder = settings.claimsDecoder();
+    this.tokenVerifier = settings.tokenVerifier();
+    this.claimsCache = settings.claimsCache();
+    this.body = body;
     this.claims = null;
   }
 
+  /**
+   * Obtains the wrapper of the same request, once its body has been buffered. The claims already
+   * read from the request's JWT are kept, so they're not decoded again.
+   *
+   * @param request Request to wrap, which may be a decorator of the wrapped one.
+   * @param body Buffered body of the request, or null if the filter has not buffered it.
+   * @return This wrapper, if the request and the body are the same ones, or else a new wrapper.
+   */
+  public RequestWrapper withBody(@NonNull ServerHttpRequest request, DataBuffer body) {
+    if (request == this.request && body == this.body) {
+      return this;
+    }
+
+    var wrapper =
+        new RequestWrapper(
+            request, new RequestWrapperSettings(claimsDecoder, tokenVerifier, claimsCache), body);
+    wrapper.claims = claims;
+    wrapper.lazyClaims = lazyClaims;
+    wrapper.verifiedClaims = verifiedClaims;
+    wrapper.tokenVerified = tokenVerified;
+    return wrapper;
+  }
+
   /**
    * Obtains all headers of the request, as an {@link HttpHeaders} object.
    *
    * @return All headers from request.
    */
   public HttpHeaders getHeaders() {
-    return request.getHeaders();
+    return headers != null ? HttpHeaders.readOnlyHttpHeaders(headers) : request.getHeaders();
   }
 
   /**
@@ -73,7 +184,8 @@ public class RequestWrapper {
    * @param values The value of the header to set.
    */
   public void setHeader(@NonNull String key, @NonNull String... values) {
-    request = request.mutate().header(key, values).build();
+    getWritableHeaders().put(key, new ArrayList<>(Arrays.asList(values)));
+    resetClaims(key);
   }
 
   /**
@@ -82,14 +194,148 @@ public class RequestWrapper {
    * @param key Key of header to remove.
    */
   public void removeHeader(@NonNull String key) {
-    request =
-        request
-            .mutate()
-            .headers(
-                requestHeaders -> {
-                  requestHeaders.remove(key);
-                })
-            .build();
+    getWritableHeaders().remove(key);
+    resetClaims(key);
+  }
+
+  /**
+   * Obtains the writable copy of the request's headers, creating it if the headers have not been
+   * changed yet.
+   *
+   * @return The writable copy of the request's headers.
+   */
+  private HttpHeaders getWritableHeaders() {
+    if (headers == null) {
+      headers = new HttpHeaders();
+      request.getHeaders().forEach((key, values) -> headers.put(key, new ArrayList<>(values)));
+    }
+
+    return headers;
+  }
+
+  /**
+   * Discards the parsed claims if the authorization header is changed, so they're parsed again from
+   * the new header.
+   *
+   * @param header Key of the changed header.
+   */
+  private void resetClaims(String header) {
+    if (HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header)) {
+      claims = null;
+      lazyClaims = null;
+      verifiedClaims = null;
+      tokenVerified = false;
+    }
+  }
+
+  /**
+   * Obtains the body of the request, as bytes. The body is copied, so changes on the returned array
+   * don't modify the request.
+   *
+   * @return The body of the request.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  public byte[] getBody() {
+    var bufferedBody = getBufferedBody();
+    var bytes = new byte[bufferedBody.readableByteCount()];
+    bufferedBody.toByteBuffer(bufferedBody.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+    return bytes;
+  }
+
+  /**
+   * Obtains the body of the request, as a string, decoded with the charset of the request's content
+   * type, or UTF-8 if it doesn't have any.
+   *
+   * @return The body of the request.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  public String getBodyAsString() {
+    var bufferedBody = getBufferedBody();
+    var contentType = getHeaders().getContentType();
+    var charset =
+        contentType != null && contentType.getCharset() != null
+            ? contentType.getCharset()
+            : StandardCharsets.UTF_8;
+
+    return bufferedBody.toString(
+        bufferedBody.readPosition(), bufferedBody.readableByteCount(), charset);
+  }
+
+  /**
+   * Obtains the body of the request, parsed as JSON. The body is parsed only the first time.
+   *
+   * @return The body of the request, as a map, list, string, number, boolean or null.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   * @throws IllegalArgumentException If the body is not a valid JSON document.
+   */
+  public Object getBodyAsJson() {
+    if (jsonBody == null) {
+      try {
+        jsonBody = JsonReader.read(getBody());
+      } catch (IOException e) {
+        throw new IllegalArgumentException("The request body is not a valid JSON document", e);
+      }
+    }
+
+    return jsonBody;
+  }
+
+  /**
+   * Obtains the buffered body of the request.
+   *
+   * @return The buffered body of the request.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  private DataBuffer getBufferedBody() {
+    if (body == null) {
+      throw new IllegalStateException(
+          "The request body is not available, scripts must read it through request.getBody(),"
+              + " request.getBodyAsString() or request.getBodyAsJson()");
+    }
+
+    return body;
+  }
+
+  /**
+   * Marks the request as cacheable, so its upstream response is stored in the route's cache, and
+   * next requests with the same key are answered from the cache without calling the upstream
+   * service. Only responses with status 200 and without cookies are cached, so the key must include
+   * everything the response depends on, like the path or the caller's identity.
+   *
+   * @param key Key of the request's response in the cache.
+   * @param timeToLive Time the response is kept in the cache.
+   */
+  public void cacheResponse(@NonNull String key, @NonNull Duration timeToLive) {
+    this.cacheKey = key;
+    this.cacheTimeToLive = timeToLive;
+  }
+
+  /**
+   * Marks the request as cacheable, with a time to live in seconds.
+   *
+   * @param key Key of the request's response in the cache.
+   * @param timeToLiveSeconds Time the response is kept in the cache, in seconds.
+   */
+  public void cacheResponse(@NonNull String key, long timeToLiveSeconds) {
+    cacheResponse(key, Duration.ofSeconds(timeToLiveSeconds));
+  }
+
+  /**
+   * Obtains the key of the request's response in the route's cache.
+   *
+   * @return The key of the response, or null if the request is not cacheable.
+   */
+  public String getCacheKey() {
+    return cacheKey;
+  }
+
+  /**
+   * Obtains the time the request's response is kept in the route's cache.
+   *
+   * @return The time to live of the response, or null if the request is not cacheable.
+   */
+  public Duration getCacheTimeToLive() {
+    return cacheTimeToLive;
   }
 
   /**
@@ -102,11 +348,14 @@ public class RequestWrapper {
    */
   public Map<String, Object> getClaims() {
     if (claims == null) {
-      var authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+      var token = getBearerToken();
 
-      if (authHeader != null && authHeader.startsWith("Bearer ")) {
+      if (token != null) {
         try {
-          this.claims = TokenManager.getTokenClaims(authHeader.replaceFirst("Bearer\\s", ""));
+          this.claims =
+              claimsDecoder == ClaimsDecoder.LAZY
+                  ? getLazyClaims(token).toMap()
+                  : TokenManager.getTokenClaims(token, claimsCache);
         } catch (ParseException e) {
           log.debug("Unable to read claims from authorization header", e);
           this.claims = new HashMap<>();
@@ -119,6 +368,74 @@ public class RequestWrapper {
     }
   }
 
+  /**
+   * Obtains all claims from JWT in authorization header, only if its signature is valid for the
+   * JWKS configured in the filter and it has not expired. Tokens are verified once during their
+   * lifetime, and their claims are cached after that.
+   *
+   * @return The claims of the token, or null if there isn't a token or it's not valid.
+   * @throws IllegalStateException If the filter doesn't configure a JWKS.
+   */
+  public Map<String, Object> getVerifiedClaims() {
+    if (tokenVerifier == null) {
+      throw new IllegalStateException("Verified claims require the jwksLocation option");
+    }
+
+    if (!tokenVerified) {
+      var token = getBearerToken();
+
+      if (token != null) {
+        try {
+          verifiedClaims = tokenVerifier.verify(token);
+        } catch (ParseException | JOSEException e) {
+          log.debug("Unable to verify the token of authorization header", e);
+        }
+      }
+
+      tokenVerified = true;
+    }
+
+    return verifiedClaims;
+  }
+
+  /**
+   * Obtains single claim from request's JWT, only if its signature is valid.
+   *
+   * @param path List of claims map keys, separated by dots.
+   * @return The value of the required claim, or null if not exists or the token is not valid.
+   * @throws IllegalStateException If the filter doesn't configure a JWKS.
+   */
+  public Object getVerifiedClaim(String path) {
+    return ClaimPath.of(path).get(getVerifiedClaims());
+  }
+
+  /**
+   * Obtains the token of the authorization header, if it's a bearer token.
+   *
+   * @return The token of the authorization header, or null if there isn't a bearer token.
+   */
+  private String getBearerToken() {
+    var authHeader = getFirstHeader(HttpHeaders.AUTHORIZATION);
+    return authHeader != null && authHeader.startsWith("Bearer ")
+        ? authHeader.replaceFirst("Bearer\\s", "")
+        : null;
+  }
+
+  /**
+   * Obtains the lazily read claims of a token, decoding its payload the first time.
+   *
+   * @param token Token of the authorization header.
+   * @return The lazily read claims of the token.
+   * @throws ParseException If the token is not valid.
+   */
+  private LazyTokenClaims getLazyClaims(String token) throws ParseException {
+    if (lazyClaims == null) {
+      lazyClaims = TokenManager.getLazyTokenClaims(token);
+    }
+
+    return lazyClaims;
+  }
+
   /**
    * Obtains single claim from request's JWT.
    *
@@ -127,25 +444,78 @@ public class RequestWrapper {
    * @return The value of the required claim, or null if not exists.
    */
   public Object getClaim(String path) {
-    var parts = path.split("\\.");
-    var claims = getClaims();
-    Object value = claims.get(parts[0]);
-
-    for (int i = 1; i < parts.length; i++) {
-      var key = parts[i];
-
-      if (value != null) {
-        if (numberPattern.matcher(key).matches() && value instanceof List list) {
-          value = list.get(Integer.parseInt(key));
-        } else if (value instanceof Map subClaims) {
-          value = subClaims.get(key);
-        } else {
-          value = null;
-        }
+    var claimPath = ClaimPath.of(path);
+
+    if (claimsDecoder == ClaimsDecoder.LAZY && claims == null) {
+      var token = getBearerToken();
+
+      if (token == null) {
+        return null;
+      }
+
+      try {
+        return getLazyClaims(token).get(claimPath);
+      } catch (ParseException e) {
+        log.debug("Unable to read claims from authorization header", e);
+        this.claims = new HashMap<>();
+        return null;
+      }
+    }
+
+    return claimPath.get(getClaims());
+  }
+
+  /**
+   * Obtains single claim from request's JWT, as a string.
+   *
+   * @param path List of claims map keys, separated by dots.
+   * @return The value of the required claim as string, or null if not exists.
+   */
+  public String getClaimAsString(String path) {
+    var value = getClaim(path);
+    return value != null ? value.toString() : null;
+  }
+
+  /**
+   * Obtains single claim from request's JWT, as a long. Dates, like <i>exp</i> claim, are returned
+   * as seconds since epoch, like in the token.
+   *
+   * @param path List of claims map keys, separated by dots.
+   * @return The value of the required claim as long, or null if not exists or is not a number.
+   */
+  public Long getClaimAsLong(String path) {
+    var value = getClaim(path);
+
+    if (value instanceof Number number) {
+      return number.longValue();
+    } else if (value instanceof Date date) {
+      return date.getTime() / 1000;
+    } else if (value instanceof String string) {
+      try {
+        return Long.parseLong(string);
+      } catch (NumberFormatException e) {
+        return null;
       }
+    } else {
+      return null;
     }
+  }
 
-    return value;
+  /**
+   * Obtains single claim from request's JWT, as a list. A single value, like an <i>aud</i> claim
+   * with only one audience, is returned as a list with that value.
+   *
+   * @param path List of claims map keys, separated by dots.
+   * @return The value of the required claim as list, or null if not exists.
+   */
+  public List<?> getClaimAsList(String path) {
+    var value = getClaim(path);
+
+    if (value instanceof List<?> list) {
+      return list;
+    } else {
+      return value != null ? List.of(value) : null;
+    }
   }
 
   /**
@@ -154,7 +524,19 @@ public class RequestWrapper {
    * @return A multi-value map with all query params from request's path.
    */
   public MultiValueMap<String, String> getQueryParams() {
-    return request.getQueryParams();
+    if (queryParams == null) {
+      return request.getQueryParams();
+    }
+
+    if (decodedQueryParams == null) {
+      var decoded = new LinkedMultiValueMap<String, String>(queryParams.size());
+      queryParams.forEach(
+          (key, values) ->
+              values.forEach(value -> decoded.add(decodeQueryParam(key), decodeQueryParam(value))));
+      decodedQueryParams = CollectionUtils.unmodifiableMultiValueMap(decoded);
+    }
+
+    return decodedQueryParams;
   }
 
   /**
@@ -178,19 +560,24 @@ public class RequestWrapper {
   }
 
   /**
-   * Adds, or overwrites, a query param on the request.
+   * Adds, or overwrites, a query param on the request. Values must be already encoded.
    *
    * @param key Key of the query param to set.
    * @param values Values of the query param to set.
    */
   public void setQueryParam(@NonNull String key, @NonNull Object... values) {
-    var modified =
-        UriComponentsBuilder.fromUri(request.getURI())
-            .replaceQueryParam(key, values)
-            .build(true)
-            .toUri();
+    var writableQueryParams = getWritableQueryParams();
+    writableQueryParams.remove(key);
+
+    if (values.length > 0) {
+      var stringValues = new ArrayList<String>(values.length);
+
+      for (var value : values) {
+        stringValues.add(value != null ? value.toString() : null);
+      }
 
-    request = request.mutate().uri(modified).build();
+      writableQueryParams.put(key, stringValues);
+    }
   }
 
   /**
@@ -199,19 +586,79 @@ public class RequestWrapper {
    * @param key Key of query param to remove.
    */
   public void removeQueryParam(@NonNull String key) {
-    var modified =
-        UriComponentsBuilder.fromUri(request.getURI()).replaceQueryParam(key).build(true).toUri();
+    getWritableQueryParams().remove(key);
+  }
+
+  /**
+   * Obtains the writable copy of the request's query params, parsing them from the request's URI if
+   * they have not been changed yet.
+   *
+   * @return The writable copy of the request's query params, still encoded.
+   */
+  private MultiValueMap<String, String> getWritableQueryParams() {
+    if (queryParams == null) {
+      queryParams =
+          new LinkedMultiValueMap<>(
+              UriComponentsBuilder.fromUri(request.getURI()).build(true).getQueryParams());
+    }
+
+    decodedQueryParams = null;
+    return queryParams;
+  }
+
+  /**
+   * Decodes a key or value of a query param, in the same way as the request does.
+   *
+   * @param value Encoded key or value.
+   * @return The decoded key or value, or the same one if it's not correctly encoded.
+   */
+  private static String decodeQueryParam(String value) {
+    if (value == null) {
+      return null;
+    }
 
-    request = request.mutate().uri(modified).build();
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      return value;
+    }
   }
 
   /**
-   * Sets the request of a {@link ServerWebExchange} with the current wrapped.
+   * Sets the request of a {@link ServerWebExchange} with the current wrapped. Pending header and
+   * query param changes are applied here, with a single rebuild of the request.
    *
    * @param exchange The {@link ServerWebExchange} to mutate.
    * @return The same {@link ServerWebExchange} with its request modified with current one.
    */
   public ServerWebExchange murateExchange(@NonNull ServerWebExchange exchange) {
+    if (headers != null || queryParams != null) {
+      var builder = request.mutate();
+
+      if (headers != null) {
+        var modifiedHeaders = headers;
+        builder.headers(
+            requestHeaders -> {
+              requestHeaders.clear();
+              requestHeaders.putAll(modifiedHeaders);
+            });
+      }
+
+      if (queryParams != null) {
+        builder.uri(
+            UriComponentsBuilder.fromUri(request.getURI())
+                .replaceQuery(null)
+                .queryParams(queryParams)
+                .build(true)
+                .toUri());
+      }
+
+      request = builder.build();
+      headers = null;
+      queryParams = null;
+      decodedQueryParams = null;
+    }
+
     return exchange.mutate().request(request).build();
   }
 }
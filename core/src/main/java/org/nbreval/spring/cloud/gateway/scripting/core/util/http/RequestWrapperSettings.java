@@ -0,0 +1,22 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
+
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ClaimsDecoder;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenClaimsCache;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenVerifier;
+
+/**
+ * Settings of the {@link RequestWrapper} objects of a filter, prepared once when the filter is
+ * applied to a route.
+ *
+ * @param claimsDecoder Mode used to read the claims of the request's JWT.
+ * @param tokenVerifier Verifier of the request's JWT, or null if verification is not configured.
+ * @param claimsCache Cache of the claims of parsed tokens.
+ */
+public record RequestWrapperSettings(
+    ClaimsDecoder claimsDecoder, TokenVerifier tokenVerifier, TokenClaimsCache claimsCache) {
+
+  /** Settings used when the filter doesn't configure any of them. */
+  public static final RequestWrapperSettings DEFAULT =
+      new RequestWrapperSettings(ClaimsDecoder.FULL, null, TokenManager.getClaimsCache());
+}
@@ -0,0 +1,43 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
+
+import org.nbreval.spring.cloud.gateway.scripting.core.exception.HttpResponseWrapperException;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.function.ThrowableBiConsumer;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Object injected to scripts as <i>response</i>, used to stop the processing and return a custom
+ * HTTP response instead of proxying the request.
+ *
+ * <p>The preferred way is returning the {@link ShortCircuitResponse} built from {@link
+ * ResponseBuilder#status(int)}, which is written directly to the response. {@link
+ * ResponseBuilder#consume(Integer, String)} is kept for compatibility, but it throws an exception
+ * which goes through Spring's error handling, so it's more expensive.
+ */
+public class ResponseBuilder
+    implements ThrowableBiConsumer<Integer, String, HttpResponseWrapperException> {
+
+  /** Builder shared by all requests, since it doesn't have any state. */
+  public static final ResponseBuilder DEFAULT = new ResponseBuilder();
+
+  /**
+   * Starts building a custom response. The script must return the built response to send it.
+   *
+   * @param status Status code of the response.
+   * @return The response, to set its headers and body.
+   */
+  public ShortCircuitResponse status(int status) {
+    return new ShortCircuitResponse(status);
+  }
+
+  /**
+   * Stops the processing by throwing an exception, which is returned as an HTTP error.
+   *
+   * @param code Status code of the response.
+   * @param message Message of the response.
+   * @throws HttpResponseWrapperException Always, to stop the processing.
+   */
+  @Override
+  public void consume(Integer code, String message) throws HttpResponseWrapperException {
+    throw new HttpResponseWrapperException(HttpStatus.valueOf(code), message, null);
+  }
+}
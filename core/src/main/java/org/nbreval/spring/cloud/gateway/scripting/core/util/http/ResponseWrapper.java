@@ -0,0 +1,288 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.json.JsonReader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+
+/**
+ * Wrapper object used to make easy interact with the downstream service's response from scripts,
+ * and limit the access to it. Changes made by the script are kept in the wrapper, and applied to
+ * the response only once, before it's committed.
+ *
+ * <p>Like in request filters, the script can also replace the downstream service's response with a
+ * custom one, returning the {@link ShortCircuitResponse} built from {@link
+ * ResponseWrapper#status(int)}.
+ */
+public class ResponseWrapper extends ResponseBuilder {
+
+  /** The actual response entity. */
+  private final @NonNull ServerHttpResponse response;
+
+  /**
+   * Writable copy of the response's headers, with the changes made by the script. It's created with
+   * the first change, and applied to the response only once.
+   */
+  private HttpHeaders headers;
+
+  /** Status set by the script, or null if it has not been changed. */
+  private HttpStatusCode status;
+
+  /**
+   * Buffered body of the response, or null if the filter has not buffered it, because the script
+   * doesn't access it.
+   */
+  private final DataBuffer body;
+
+  /** New body of the response, set by the script, or null if it has not been changed. */
+  private byte[] modifiedBody;
+
+  /** Body of the response parsed as JSON, parsed the first time it's required. */
+  private Object jsonBody;
+
+  public ResponseWrapper(@NonNull ServerHttpResponse response) {
+    this(response, null);
+  }
+
+  /**
+   * Generates the wrapper of a response whose body has been buffered.
+   *
+   * @param response Response to wrap.
+   * @param body Buffered body of the response, or null if the filter has not buffered it.
+   */
+  public ResponseWrapper(@NonNull ServerHttpResponse response, DataBuffer body) {
+    this.response = response;
+    this.body = body;
+  }
+
+  /**
+   * Obtains the status code of the response.
+   *
+   * @return The status code of the response.
+   */
+  public int getStatus() {
+    if (status != null) {
+      return status.value();
+    }
+
+    var responseStatus = response.getStatusCode();
+    return responseStatus != null ? responseStatus.value() : HttpStatus.OK.value();
+  }
+
+  /**
+   * Changes the status code of the response.
+   *
+   * @param status New status code of the response.
+   */
+  public void setStatus(int status) {
+    this.status = HttpStatusCode.valueOf(status);
+  }
+
+  /**
+   * Obtains all headers of the response, as an {@link HttpHeaders} object.
+   *
+   * @return All headers from response.
+   */
+  public HttpHeaders getHeaders() {
+    return HttpHeaders.readOnlyHttpHeaders(headers != null ? headers : response.getHeaders());
+  }
+
+  /**
+   * Obtains the values of an specific header.
+   *
+   * @param header Key of header to obtain.
+   * @return The value of the required header, or null if not exists.
+   */
+  public List<String> getHeader(String header) {
+    return getHeaders().get(header);
+  }
+
+  /**
+   * Obtains the first value of an specific header.
+   *
+   * @param header Key of header to obtain.
+   * @return The value of the required header, or null if not exists.
+   */
+  public String getFirstHeader(@NonNull String header) {
+    return getHeaders().getFirst(header);
+  }
+
+  /**
+   * Adds, or overwrites, a header on the response.
+   *
+   * @param key The key of the header to set.
+   * @param values The value of the header to set.
+   */
+  public void setHeader(@NonNull String key, @NonNull String... values) {
+    getWritableHeaders().put(key, new ArrayList<>(Arrays.asList(values)));
+  }
+
+  /**
+   * Removes a header on response.
+   *
+   * @param key Key of header to remove.
+   */
+  public void removeHeader(@NonNull String key) {
+    getWritableHeaders().remove(key);
+  }
+
+  /**
+   * Obtains the writable copy of the response's headers, creating it if the headers have not been
+   * changed yet.
+   *
+   * @return The writable copy of the response's headers.
+   */
+  private HttpHeaders getWritableHeaders() {
+    if (headers == null) {
+      headers = new HttpHeaders();
+      response.getHeaders().forEach((key, values) -> headers.put(key, new ArrayList<>(values)));
+    }
+
+    return headers;
+  }
+
+  /**
+   * Obtains the body of the response, as bytes. The body is copied, so changes on the returned
+   * array don't modify the response.
+   *
+   * @return The body of the response.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  public byte[] getBody() {
+    if (modifiedBody != null) {
+      return modifiedBody.clone();
+    }
+
+    var bufferedBody = getBufferedBody();
+    var bytes = new byte[bufferedBody.readableByteCount()];
+    bufferedBody.toByteBuffer(bufferedBody.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+    return bytes;
+  }
+
+  /**
+   * Obtains the body of the response, as a string, decoded with the charset of the response's
+   * content type, or UTF-8 if it doesn't have any.
+   *
+   * @return The body of the response.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  public String getBodyAsString() {
+    if (modifiedBody != null) {
+      return new String(modifiedBody, getCharset());
+    }
+
+    var bufferedBody = getBufferedBody();
+    return bufferedBody.toString(
+        bufferedBody.readPosition(), bufferedBody.readableByteCount(), getCharset());
+  }
+
+  /**
+   * Obtains the body of the response, parsed as JSON. The body is parsed only the first time.
+   *
+   * @return The body of the response, as a map, list, string, number, boolean or null.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   * @throws IllegalArgumentException If the body is not a valid JSON document.
+   */
+  public Object getBodyAsJson() {
+    if (jsonBody == null) {
+      try {
+        jsonBody = JsonReader.read(getBody());
+      } catch (IOException e) {
+        throw new IllegalArgumentException("The response body is not a valid JSON document", e);
+      }
+    }
+
+    return jsonBody;
+  }
+
+  /**
+   * Replaces the body of the response.
+   *
+   * @param body New body of the response.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  public void setBody(@NonNull byte[] body) {
+    getBufferedBody();
+    this.modifiedBody = body.clone();
+    this.jsonBody = null;
+  }
+
+  /**
+   * Replaces the body of the response with a string, encoded with the charset of the response's
+   * content type, or UTF-8 if it doesn't have any.
+   *
+   * @param body New body of the response.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  public void setBody(@NonNull String body) {
+    setBody(body.getBytes(getCharset()));
+  }
+
+  /**
+   * Obtains the charset of the response's content type.
+   *
+   * @return The charset of the response's content type, or UTF-8 if it doesn't have any.
+   */
+  private Charset getCharset() {
+    var contentType = getHeaders().getContentType();
+    return contentType != null && contentType.getCharset() != null
+        ? contentType.getCharset()
+        : StandardCharsets.UTF_8;
+  }
+
+  /**
+   * Obtains the buffered body of the response.
+   *
+   * @return The buffered body of the response.
+   * @throws IllegalStateException If the body has not been buffered for the script.
+   */
+  private DataBuffer getBufferedBody() {
+    if (body == null) {
+      throw new IllegalStateException(
+          "The response body is not available, scripts must access it through"
+              + " response.getBody(), response.getBodyAsString(), response.getBodyAsJson() or"
+              + " response.setBody()");
+    }
+
+    return body;
+  }
+
+  /**
+   * Applies the pending status and header changes to the response, with a single update of its
+   * headers. It must be invoked before the response is committed.
+   *
+   * @return The body to write, which is the original one if the script has not replaced it, or null
+   *     if the filter has not buffered it.
+   */
+  public DataBuffer applyToResponse() {
+    if (status != null) {
+      response.setStatusCode(status);
+    }
+
+    if (headers != null) {
+      var responseHeaders = response.getHeaders();
+      responseHeaders.clear();
+      responseHeaders.putAll(headers);
+    }
+
+    if (modifiedBody != null) {
+      DataBufferUtils.release(body);
+      response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+      response.getHeaders().setContentLength(modifiedBody.length);
+      return response.bufferFactory().wrap(modifiedBody);
+    }
+
+    return body;
+  }
+}
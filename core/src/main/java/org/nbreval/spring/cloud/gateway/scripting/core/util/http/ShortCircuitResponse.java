@@ -0,0 +1,174 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.json.JsonWriter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom HTTP response returned by a script to stop the processing. It's written directly to the
+ * exchange's response, without throwing exceptions or going through Spring's error handling.
+ */
+public class ShortCircuitResponse {
+
+  /** Status code of the response. */
+  private final HttpStatusCode status;
+
+  /** Headers of the response, created with the first one. */
+  private HttpHeaders headers;
+
+  /** Body of the response, or null if it doesn't have body. */
+  private byte[] body;
+
+  /** Content type of the body, or null if the script has not set it. */
+  private MediaType contentType;
+
+  /**
+   * Generates a response without headers or body.
+   *
+   * @param status Status code of the response.
+   */
+  public ShortCircuitResponse(int status) {
+    this.status = HttpStatusCode.valueOf(status);
+  }
+
+  /**
+   * Obtains the status code of the response.
+   *
+   * @return The status code of the response.
+   */
+  public int getStatus() {
+    return status.value();
+  }
+
+  /**
+   * Adds, or overwrites, a header of the response.
+   *
+   * @param key Key of the header, like <i>Retry-After</i>.
+   * @param values Values of the header.
+   * @return The same response.
+   */
+  public ShortCircuitResponse header(@NonNull String key, @NonNull Object... values) {
+    if (headers == null) {
+      headers = new HttpHeaders();
+    }
+
+    var stringValues = new ArrayList<String>(values.length);
+
+    for (var value : values) {
+      stringValues.add(String.valueOf(value));
+    }
+
+    headers.put(key, stringValues);
+    return this;
+  }
+
+  /**
+   * Sets the body of the response, as text encoded in UTF-8. If the content type has not been set,
+   * it's sent as plain text.
+   *
+   * @param body Body of the response.
+   * @return The same response.
+   */
+  public ShortCircuitResponse body(@NonNull String body) {
+    this.body = body.getBytes(StandardCharsets.UTF_8);
+
+    if (contentType == null) {
+      contentType = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    }
+
+    return this;
+  }
+
+  /**
+   * Sets the body of the response, as bytes.
+   *
+   * @param body Body of the response.
+   * @return The same response.
+   */
+  public ShortCircuitResponse body(@NonNull byte[] body) {
+    this.body = Arrays.copyOf(body, body.length);
+    return this;
+  }
+
+  /**
+   * Sets the body of the response as a JSON document. If the content type has not been set, it's
+   * sent as JSON.
+   *
+   * @param value Value of the document, as a map, list, string, number, boolean or null.
+   * @return The same response.
+   * @throws IllegalArgumentException If the value can't be written as JSON.
+   */
+  public ShortCircuitResponse json(Object value) {
+    try {
+      this.body = JsonWriter.write(value);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("The response body can't be written as JSON", e);
+    }
+
+    if (contentType == null) {
+      contentType = MediaType.APPLICATION_JSON;
+    }
+
+    return this;
+  }
+
+  /**
+   * Sets the content type of the body.
+   *
+   * @param contentType Content type of the body, like <i>application/problem+json</i>.
+   * @return The same response.
+   */
+  public ShortCircuitResponse contentType(@NonNull String contentType) {
+    this.contentType = MediaType.parseMediaType(contentType);
+    return this;
+  }
+
+  /**
+   * Writes the response to the exchange's response, keeping headers already set by other filters
+   * unless the script overwrites them.
+   *
+   * @param response Exchange's response.
+   * @return The result of writing the response.
+   */
+  public Mono<Void> writeTo(@NonNull ServerHttpResponse response) {
+    var buffer = applyTo(response);
+    return buffer != null ? response.writeWith(Mono.just(buffer)) : response.setComplete();
+  }
+
+  /**
+   * Sets the status and headers of the response to the exchange's response, without writing the
+   * body.
+   *
+   * @param response Exchange's response, not committed yet.
+   * @return The body to write, or null if the response doesn't have body.
+   */
+  public DataBuffer applyTo(@NonNull ServerHttpResponse response) {
+    response.setStatusCode(status);
+    var responseHeaders = response.getHeaders();
+
+    if (headers != null) {
+      responseHeaders.putAll(headers);
+    }
+
+    if (body == null) {
+      responseHeaders.setContentLength(0);
+      return null;
+    }
+
+    if (contentType != null) {
+      responseHeaders.setContentType(contentType);
+    }
+
+    responseHeaders.setContentLength(body.length);
+    return response.bufferFactory().wrap(body);
+  }
+}
@@ -0,0 +1,52 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.http;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Util class used to obtain the non-blocking web clients injected to scripts, so they can call
+ * other services without blocking the event loop.
+ */
+public class WebClientManager {
+
+  /** Web clients already created, by timeout. All of them share the same connector. */
+  private static final Map<Duration, WebClient> webClients = new ConcurrentHashMap<>();
+
+  /**
+   * Obtains the web client with a timeout. The timeout is applied to each call, from the request
+   * until the response's headers are received, using an exchange filter, so it doesn't depend on
+   * the HTTP connector available in the classpath. Clients are shared by all filters with the same
+   * timeout.
+   *
+   * @param timeout Maximum time to wait for the response of each call.
+   * @return The web client.
+   */
+  public static WebClient getWebClient(@NonNull Duration timeout) {
+    return webClients.computeIfAbsent(
+        timeout,
+        key ->
+            WebClient.builder()
+                .clientConnector(ConnectorHolder.connector)
+                .filter((request, next) -> next.exchange(request).timeout(key))
+                .build());
+  }
+
+  /**
+   * Holder of the connector shared by all web clients, created only when a filter requires it. It
+   * uses Reactor Netty, like the gateway, or the JDK's HTTP client if it's not available.
+   */
+  private static class ConnectorHolder {
+    private static final ClientHttpConnector connector =
+        ClassUtils.isPresent(
+                "reactor.netty.http.client.HttpClient", WebClientManager.class.getClassLoader())
+            ? new ReactorClientHttpConnector()
+            : new JdkClientHttpConnector();
+  }
+}
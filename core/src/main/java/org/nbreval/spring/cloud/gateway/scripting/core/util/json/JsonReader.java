@@ -0,0 +1,90 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/** Util class used to read JSON documents into maps, lists and simple values. */
+public class JsonReader {
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  /**
+   * Creates a streaming parser of a JSON document.
+   *
+   * @param content JSON document, encoded in UTF-8.
+   * @return The parser of the document.
+   * @throws IOException If the parser can't be created.
+   */
+  public static JsonParser createParser(byte[] content) throws IOException {
+    return jsonFactory.createParser(content);
+  }
+
+  /**
+   * Reads a whole JSON document.
+   *
+   * @param content JSON document, encoded in UTF-8.
+   * @return The value of the document, as a map, list, string, number, boolean or null.
+   * @throws IOException If the document is not valid.
+   */
+  public static Object read(byte[] content) throws IOException {
+    try (var parser = createParser(content)) {
+      if (parser.nextToken() == null) {
+        throw new IOException("Empty JSON document");
+      }
+
+      var value = readValue(parser);
+
+      if (parser.nextToken() != null) {
+        throw new IOException("Unexpected content after JSON document");
+      }
+
+      return value;
+    }
+  }
+
+  /**
+   * Reads the value placed at the current token of a parser, including its children.
+   *
+   * @param parser Parser placed at the first token of the value.
+   * @return The value, as a map, list, string, number, boolean or null.
+   * @throws IOException If the document is not valid.
+   */
+  public static Object readValue(JsonParser parser) throws IOException {
+    return switch (parser.currentToken()) {
+      case START_OBJECT -> {
+        var map = new LinkedHashMap<String, Object>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          var name = parser.currentName();
+          parser.nextToken();
+          map.put(name, readValue(parser));
+        }
+
+        yield map;
+      }
+      case START_ARRAY -> {
+        var list = new ArrayList<>();
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          list.add(readValue(parser));
+        }
+
+        yield list;
+      }
+      case VALUE_STRING -> parser.getText();
+      case VALUE_NUMBER_INT ->
+          parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+              ? parser.getBigIntegerValue()
+              : parser.getLongValue();
+      case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+      case VALUE_TRUE -> Boolean.TRUE;
+      case VALUE_FALSE -> Boolean.FALSE;
+      case VALUE_NULL -> null;
+      default -> throw new IOException("Unexpected token " + parser.currentToken());
+    };
+  }
+}
@@ -0,0 +1,82 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+
+/** Util class used to write maps, lists and simple values as JSON documents. */
+public class JsonWriter {
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  /**
+   * Writes a value as a JSON document.
+   *
+   * @param value Value to write, as a map, iterable, array, string, number, boolean or null. Other
+   *     objects are written as strings.
+   * @return The JSON document, encoded in UTF-8.
+   * @throws IOException If the value can't be written.
+   */
+  public static byte[] write(Object value) throws IOException {
+    try (var output = new ByteArrayBuilder();
+        var generator = jsonFactory.createGenerator(output)) {
+      writeValue(generator, value);
+      generator.flush();
+      return output.toByteArray();
+    }
+  }
+
+  /**
+   * Writes a value, including its children.
+   *
+   * @param generator Generator of the JSON document.
+   * @param value Value to write.
+   * @throws IOException If the value can't be written.
+   */
+  private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof Map<?, ?> map) {
+      generator.writeStartObject();
+
+      for (var entry : map.entrySet()) {
+        generator.writeFieldName(String.valueOf(entry.getKey()));
+        writeValue(generator, entry.getValue());
+      }
+
+      generator.writeEndObject();
+    } else if (value instanceof Iterable<?> iterable) {
+      generator.writeStartArray();
+
+      for (var item : iterable) {
+        writeValue(generator, item);
+      }
+
+      generator.writeEndArray();
+    } else if (value instanceof Object[] array) {
+      generator.writeStartArray();
+
+      for (var item : array) {
+        writeValue(generator, item);
+      }
+
+      generator.writeEndArray();
+    } else if (value instanceof Boolean bool) {
+      generator.writeBoolean(bool);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+      generator.writeNumber(((Number) value).longValue());
+    } else if (value instanceof BigInteger bigInteger) {
+      generator.writeNumber(bigInteger);
+    } else if (value instanceof BigDecimal bigDecimal) {
+      generator.writeNumber(bigDecimal);
+    } else if (value instanceof Number number) {
+      generator.writeNumber(number.doubleValue());
+    } else {
+      generator.writeString(value.toString());
+    }
+  }
+}
@@ -0,0 +1,330 @@
+package org.nbreval.spring.cloud.gateway.scripting.core.util.state;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.lang.NonNull;
+
+/**
+ * State shared by all requests of a route, injected to scripts as <i>state</i>, so they can count
+ * or remember things between requests without static fields or locks in the script.
+ *
+ * <p>Counters are {@link LongAdder}s, which are striped internally, so concurrent increments from
+ * many threads don't contend on a single value. Values are stored in a concurrent map, with an
+ * optional time to live for each one, and updated atomically with {@link ScriptState#putIfAbsent}
+ * and {@link ScriptState#compareAndSet}. Counters and values are bounded by a maximum number of
+ * entries, so keys generated from requests, like a client's identifier, can't exhaust the memory:
+ * when a new entry exceeds the limit, expired values are removed first, and then arbitrary entries,
+ * until a 16th of the limit is free. Evicting a counter which is still in use silently resets it to
+ * zero, so the limit must be higher than the number of counters a route really needs.
+ */
+public class ScriptState {
+
+  /** Counters of the route, by name. */
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  /** Values of the route, by key. */
+  private final Map<String, Entry> values = new ConcurrentHashMap<>();
+
+  /** Maximum number of counters, and of values, kept by the state. */
+  private final int maxEntries;
+
+  /**
+   * Number of entries freed below the maximum on each eviction, so the cost of scanning the map is
+   * shared by the next new entries instead of being paid by each one.
+   */
+  private final int evictionBatch;
+
+  /**
+   * Indicates if an eviction of counters is running, so concurrent new counters don't scan the map
+   * again.
+   */
+  private final AtomicBoolean evictingCounters = new AtomicBoolean();
+
+  /**
+   * Indicates if an eviction of values is running, so concurrent new values don't scan the map
+   * again.
+   */
+  private final AtomicBoolean evictingValues = new AtomicBoolean();
+
+  /**
+   * Generates an empty state.
+   *
+   * @param maxEntries Maximum number of counters, and of values, kept by the state.
+   */
+  public ScriptState(int maxEntries) {
+    this.maxEntries = Math.max(maxEntries, 1);
+    this.evictionBatch = Math.max(this.maxEntries / 16, 1);
+  }
+
+  /**
+   * Increments a counter by one.
+   *
+   * @param name Name of the counter.
+   */
+  public void increment(@NonNull String name) {
+    getCounter(name).increment();
+  }
+
+  /**
+   * Adds a value to a counter.
+   *
+   * @param name Name of the counter.
+   * @param delta Value to add, which may be negative.
+   */
+  public void add(@NonNull String name, long delta) {
+    getCounter(name).add(delta);
+  }
+
+  /**
+   * Obtains the current value of a counter. Under concurrent updates, it may not include increments
+   * made at the same time.
+   *
+   * @param name Name of the counter.
+   * @return The value of the counter, or zero if it doesn't exist.
+   */
+  public long count(@NonNull String name) {
+    var counter = counters.get(name);
+    return counter != null ? counter.sum() : 0;
+  }
+
+  /**
+   * Obtains the current value of a counter and sets it to zero.
+   *
+   * @param name Name of the counter.
+   * @return The value of the counter before resetting it, or zero if it doesn't exist.
+   */
+  public long resetCounter(@NonNull String name) {
+    var counter = counters.get(name);
+    return counter != null ? counter.sumThenReset() : 0;
+  }
+
+  /**
+   * Obtains a counter, creating it if it doesn't exist.
+   *
+   * @param name Name of the counter.
+   * @return The counter.
+   */
+  private LongAdder getCounter(String name) {
+    var counter = counters.get(name);
+
+    if (counter == null) {
+      counter = counters.computeIfAbsent(name, key -> new LongAdder());
+      evictIfFull(counters, evictingCounters, name);
+    }
+
+    return counter;
+  }
+
+  /**
+   * Obtains a value.
+   *
+   * @param key Key of the value.
+   * @return The value, or null if it doesn't exist or has expired.
+   */
+  public Object get(@NonNull String key) {
+    var entry = values.get(key);
+
+    if (entry == null) {
+      return null;
+    } else if (entry.isExpired(System.nanoTime())) {
+      values.remove(key, entry);
+      return null;
+    } else {
+      return entry.value();
+    }
+  }
+
+  /**
+   * Stores a value, which never expires, replacing the previous one.
+   *
+   * @param key Key of the value.
+   * @param value Value to store.
+   */
+  public void put(@NonNull String key, @NonNull Object value) {
+    put(key, value, null);
+  }
+
+  /**
+   * Stores a value, replacing the previous one.
+   *
+   * @param key Key of the value.
+   * @param value Value to store.
+   * @param timeToLive Time the value is kept, or null if it never expires.
+   */
+  public void put(@NonNull String key, @NonNull Object value, Duration timeToLive) {
+    var entry = new Entry(value, expiresAt(timeToLive));
+
+    if (values.put(key, entry) == null) {
+      evictIfFull(values, evictingValues, key);
+    }
+  }
+
+  /**
+   * Stores a value, which never expires, only if there isn't any value for the key.
+   *
+   * @param key Key of the value.
+   * @param value Value to store.
+   * @return The current value, or null if the value has been stored.
+   */
+  public Object putIfAbsent(@NonNull String key, @NonNull Object value) {
+    return putIfAbsent(key, value, null);
+  }
+
+  /**
+   * Stores a value only if there isn't any value for the key, or it has expired. The check and the
+   * update are done atomically.
+   *
+   * @param key Key of the value.
+   * @param value Value to store.
+   * @param timeToLive Time the value is kept, or null if it never expires.
+   * @return The current value, or null if the value has been stored.
+   */
+  public Object putIfAbsent(@NonNull String key, @NonNull Object value, Duration timeToLive) {
+    var current = new Object[1];
+    var now = System.nanoTime();
+
+    values.compute(
+        key,
+        (k, entry) -> {
+          if (entry != null && !entry.isExpired(now)) {
+            current[0] = entry.value();
+            return entry;
+          }
+
+          return new Entry(value, expiresAt(timeToLive));
+        });
+
+    if (current[0] == null) {
+      evictIfFull(values, evictingValues, key);
+    }
+
+    return current[0];
+  }
+
+  /**
+   * Replaces a value only if the current one is equal to the expected one. The check and the update
+   * are done atomically, and the new value keeps the time to live of the previous one.
+   *
+   * @param key Key of the value.
+   * @param expected Expected value, or null if there mustn't be any value for the key.
+   * @param value New value, or null to remove it.
+   * @return True if the value has been replaced, else false.
+   */
+  public boolean compareAndSet(@NonNull String key, Object expected, Object value) {
+    var updated = new boolean[1];
+    var now = System.nanoTime();
+
+    values.compute(
+        key,
+        (k, entry) -> {
+          var current = entry != null && !entry.isExpired(now) ? entry : null;
+
+          if (!Objects.equals(current != null ? current.value() : null, expected)) {
+            return current;
+          }
+
+          updated[0] = true;
+          return value != null
+              ? new Entry(value, current != null ? current.expiresAt() : Long.MAX_VALUE)
+              : null;
+        });
+
+    if (updated[0] && expected == null && value != null) {
+      evictIfFull(values, evictingValues, key);
+    }
+
+    return updated[0];
+  }
+
+  /**
+   * Removes a value.
+   *
+   * @param key Key of the value.
+   * @return The removed value, or null if it doesn't exist or has expired.
+   */
+  public Object remove(@NonNull String key) {
+    var entry = values.remove(key);
+    return entry != null && !entry.isExpired(System.nanoTime()) ? entry.value() : null;
+  }
+
+  /**
+   * Obtains the number of values stored, including expired ones not removed yet.
+   *
+   * @return The number of values stored.
+   */
+  public int size() {
+    return values.size();
+  }
+
+  /**
+   * Removes entries of a map when it exceeds the maximum number of entries. Expired values are
+   * removed first, and then arbitrary entries, until a batch of entries is free, so the map is only
+   * scanned once every batch of new entries, and the check is cheap while the map is not full. If
+   * another thread is already evicting entries of the same map, it may exceed the maximum until it
+   * finishes.
+   *
+   * <p>Counters have no expiration, so a counter which is still in use may be evicted, and it's
+   * silently reset to zero the next time it's incremented.
+   *
+   * @param map Map to check.
+   * @param evicting Indicates if an eviction of the map is running.
+   * @param addedKey Key of the entry just added, which is never removed.
+   */
+  private void evictIfFull(Map<String, ?> map, AtomicBoolean evicting, String addedKey) {
+    if (map.size() <= maxEntries || !evicting.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      if (map == values) {
+        var now = System.nanoTime();
+        values.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+      }
+
+      var target = maxEntries - evictionBatch;
+      var iterator = map.keySet().iterator();
+
+      while (map.size() > target && iterator.hasNext()) {
+        if (!iterator.next().equals(addedKey)) {
+          iterator.remove();
+        }
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  /**
+   * Calculates the moment when a value expires.
+   *
+   * @param timeToLive Time the value is kept, or null if it never expires.
+   * @return The moment when the value expires, in nanoseconds of {@link System#nanoTime()}.
+   */
+  private static long expiresAt(Duration timeToLive) {
+    return timeToLive != null ? System.nanoTime() + timeToLive.toNanos() : Long.MAX_VALUE;
+  }
+
+  /**
+   * Value stored in the state.
+   *
+   * @param value Stored value.
+   * @param expiresAt Moment when the value expires, in nanoseconds of {@link System#nanoTime()}, or
+   *     {@link Long#MAX_VALUE} if it never expires.
+   */
+  private record Entry(Object value, long expiresAt) {
+
+    /**
+     * Indicates if the value has expired.
+     *
+     * @param now Current moment, in nanoseconds of {@link System#nanoTime()}.
+     * @return True if the value has expired, else false.
+     */
+    boolean isExpired(long now) {
+      return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+    }
+  }
+}
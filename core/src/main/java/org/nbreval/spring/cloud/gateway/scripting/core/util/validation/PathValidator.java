@@ -31,7 +31,7 @@ public class PathValidator {
    */
   public static boolean isValidClasspathPath(String possiblePath) {
     if (possiblePath.startsWith("classpath:")) {
-      var resourcePath = possiblePath.replaceFirst("classPath:", "");
+      var resourcePath = possiblePath.replaceFirst("classpath:/?", "");
       return Thread.currentThread().getContextClassLoader().getResource(resourcePath) != null;
     }
 
@@ -1,4 +1,30 @@
 dependencies {
     api(project(":gateway-scripting-core"))
     implementation(rootProject.libs.apache.groovy)
-}
\ No newline at end of file
+    compileOnly(rootProject.libs.micrometer.core)
+
+    testImplementation(rootProject.libs.micrometer.core)
+    testRuntimeOnly(rootProject.libs.netty.buffer)
+}
+
+val precompileTestScripts by tasks.registering(JavaExec::class) {
+    description = "Precompiles the scripts of test resources, like a project using the library would do."
+
+    val scriptsDirectory = file("src/test/resources/scripts")
+    val outputDirectory = layout.buildDirectory.dir("precompiled-test-scripts")
+
+    inputs.dir(scriptsDirectory)
+    outputs.dir(outputDirectory)
+
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.nbreval.spring.cloud.gateway.scripting.groovy.script.GroovyScriptPrecompiler")
+    argumentProviders.add(
+        CommandLineArgumentProvider {
+            listOf(scriptsDirectory.absolutePath, outputDirectory.get().asFile.absolutePath)
+        },
+    )
+}
+
+sourceSets.test {
+    resources.srcDir(precompileTestScripts)
+}
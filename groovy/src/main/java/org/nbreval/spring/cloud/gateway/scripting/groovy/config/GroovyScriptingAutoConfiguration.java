@@ -1,6 +1,14 @@
 package org.nbreval.spring.cloud.gateway.scripting.groovy.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.MicrometerScriptMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyBodyChunkScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyResponseScriptingFilterFactory;
 import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -14,10 +22,64 @@ public class GroovyScriptingAutoConfiguration {
   /**
    * Instance of Groovy factory to enable using in a Spring Cloud Gateway project.
    *
+   * @param metrics Provider of the metrics of the filters, if metrics are enabled.
    * @return
    */
   @Bean
-  public GroovyScriptingFilterFactory groovyScriptingFilterFactory() {
-    return new GroovyScriptingFilterFactory();
+  public GroovyScriptingFilterFactory groovyScriptingFilterFactory(
+      ObjectProvider<ScriptMetrics> metrics) {
+    var factory = new GroovyScriptingFilterFactory();
+    metrics.ifAvailable(factory::setMetrics);
+    return factory;
+  }
+
+  /**
+   * Instance of Groovy factory of filters which transform the request's body chunk by chunk.
+   *
+   * @param metrics Provider of the metrics of the filters, if metrics are enabled.
+   * @return
+   */
+  @Bean
+  public GroovyBodyChunkScriptingFilterFactory groovyBodyChunkScriptingFilterFactory(
+      ObjectProvider<ScriptMetrics> metrics) {
+    var factory = new GroovyBodyChunkScriptingFilterFactory();
+    metrics.ifAvailable(factory::setMetrics);
+    return factory;
+  }
+
+  /**
+   * Instance of Groovy factory of filters which process the downstream service's response.
+   *
+   * @param metrics Provider of the metrics of the filters, if metrics are enabled.
+   * @return
+   */
+  @Bean
+  public GroovyResponseScriptingFilterFactory groovyResponseScriptingFilterFactory(
+      ObjectProvider<ScriptMetrics> metrics) {
+    var factory = new GroovyResponseScriptingFilterFactory();
+    metrics.ifAvailable(factory::setMetrics);
+    return factory;
+  }
+
+  /**
+   * Configuration of the metrics of the filters, only loaded when Micrometer is in the classpath.
+   */
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+  static class GroovyScriptingMetricsConfiguration {
+
+    /**
+     * Provider of the metrics of the filters, which stores them in the application's {@link
+     * MeterRegistry}. If there isn't any registry, metrics are disabled.
+     *
+     * @param meterRegistry Registry used to store the metrics.
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ScriptMetrics scriptMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+      var registry = meterRegistry.getIfUnique();
+      return registry != null ? new MicrometerScriptMetrics(registry) : ScriptMetrics.NOOP;
+    }
   }
 }
@@ -0,0 +1,36 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.filter;
+
+import java.io.IOException;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.exception.HttpResponseWrapperException;
+import org.nbreval.spring.cloud.gateway.scripting.core.filter.AbstractBodyChunkScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptManager;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.script.GroovyScriptManager;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Implementation of {@link AbstractBodyChunkScriptingFilterFactory} with a {@link ScriptManager}
+ * which process each chunk of the request's body using Groovy language.
+ */
+public class GroovyBodyChunkScriptingFilterFactory extends AbstractBodyChunkScriptingFilterFactory {
+
+  /**
+   * Generates a new {@link GroovyScriptManager} for the configuration. The script is compiled
+   * immediately, and the manager is kept by the route's filter, so each route runs its own script.
+   */
+  @Override
+  protected ScriptManager getScriptManager(ScriptingFilterConfig config)
+      throws HttpResponseWrapperException {
+    try {
+      return new GroovyScriptManager(config.getScript(), config);
+    } catch (IOException e) {
+      throw new HttpResponseWrapperException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Error obtaining script from configuration", e);
+    }
+  }
+
+  @Override
+  public String name() {
+    return "GroovyBodyChunkScripting";
+  }
+}
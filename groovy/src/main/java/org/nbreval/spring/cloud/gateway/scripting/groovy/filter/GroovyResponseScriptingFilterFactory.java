@@ -0,0 +1,39 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.filter;
+
+import java.io.IOException;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.exception.HttpResponseWrapperException;
+import org.nbreval.spring.cloud.gateway.scripting.core.filter.AbstractResponseScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptManager;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.script.GatewayResponseScript;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.script.GroovyScriptManager;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Implementation of {@link AbstractResponseScriptingFilterFactory} with a {@link ScriptManager}
+ * which process the downstream service's response using Groovy language.
+ */
+public class GroovyResponseScriptingFilterFactory extends AbstractResponseScriptingFilterFactory {
+
+  /**
+   * Generates a new {@link GroovyScriptManager} for the configuration. The script is compiled
+   * immediately, and the manager is kept by the route's filter, so each route runs its own script.
+   * Scripts compiled with static compilation extend {@link GatewayResponseScript}, so their
+   * response is typed as the response's wrapper.
+   */
+  @Override
+  protected ScriptManager getScriptManager(ScriptingFilterConfig config)
+      throws HttpResponseWrapperException {
+    try {
+      return new GroovyScriptManager(config.getScript(), config, GatewayResponseScript.class);
+    } catch (IOException e) {
+      throw new HttpResponseWrapperException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Error obtaining script from configuration", e);
+    }
+  }
+
+  @Override
+  public String name() {
+    return "GroovyResponseScripting";
+  }
+}
@@ -15,25 +15,18 @@ import org.springframework.http.HttpStatus;
 public class GroovyScriptingFilterFactory extends AbstractScriptingFilterFactory {
 
   /**
-   * Instance of {@link GroovyScriptManager}, stored to don't create it each time that the manager
-   * is invoked.
+   * Generates a new {@link GroovyScriptManager} for the configuration. The script is compiled
+   * immediately, and the manager is kept by the route's filter, so each route runs its own script.
    */
-  private GroovyScriptManager scriptManager;
-
   @Override
   protected ScriptManager getScriptManager(ScriptingFilterConfig config)
       throws HttpResponseWrapperException {
-
-    if (scriptManager == null) {
-      try {
-        scriptManager = new GroovyScriptManager(config.getScript());
-      } catch (IOException e) {
-        throw new HttpResponseWrapperException(
-            HttpStatus.INTERNAL_SERVER_ERROR, "Error obtaining script from configuration", e);
-      }
+    try {
+      return new GroovyScriptManager(config.getScript(), config);
+    } catch (IOException e) {
+      throw new HttpResponseWrapperException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Error obtaining script from configuration", e);
     }
-
-    return scriptManager;
   }
 
   @Override
@@ -0,0 +1,15 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.script;
+
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseWrapper;
+
+/**
+ * Base class of the scripts of response filters compiled with static compilation. The response is
+ * typed as a {@link ResponseWrapper}, so the script can read and modify it without casts.
+ */
+public abstract class GatewayResponseScript extends GatewayScript {
+
+  @Override
+  public ResponseWrapper getResponse() {
+    return (ResponseWrapper) super.getResponse();
+  }
+}
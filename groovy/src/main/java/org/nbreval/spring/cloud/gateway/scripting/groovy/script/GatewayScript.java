@@ -0,0 +1,109 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.script;
+
+import groovy.lang.Script;
+import java.util.Map;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ChunkWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.RequestWrapper;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseBuilder;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.state.ScriptState;
+import org.slf4j.Logger;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Base class of the scripts compiled with static compilation. The context of the script is stored
+ * in typed fields instead of the script's binding, so the compiler can resolve the calls made to
+ * them and the JIT can inline the script code like any other Java class.
+ */
+public abstract class GatewayScript extends Script {
+
+  /** Wrapper of the request to process. */
+  private RequestWrapper request;
+
+  /**
+   * Builder used to stop the request processing and return a custom HTTP response. In response
+   * filters, it's the {@link
+   * org.nbreval.spring.cloud.gateway.scripting.core.util.http.ResponseWrapper} of the response.
+   */
+  private ResponseBuilder response;
+
+  /** Logger object, used by the script to write in application's log. */
+  private Logger logger;
+
+  /** Non-blocking web client used to call other services, only set in request filters. */
+  private WebClient webClient;
+
+  /** State shared by all requests of the route. */
+  private ScriptState state;
+
+  /** Chunk of the request's body to process, only set in body chunk filters. */
+  private ChunkWrapper chunk;
+
+  /** Map shared by all chunks of the same request, only set in body chunk filters. */
+  private Map<String, Object> context;
+
+  public RequestWrapper getRequest() {
+    return request;
+  }
+
+  public ResponseBuilder getResponse() {
+    return response;
+  }
+
+  public Logger getLogger() {
+    return logger;
+  }
+
+  public WebClient getWebClient() {
+    return webClient;
+  }
+
+  public ScriptState getState() {
+    return state;
+  }
+
+  public ChunkWrapper getChunk() {
+    return chunk;
+  }
+
+  public Map<String, Object> getContext() {
+    return context;
+  }
+
+  /**
+   * Sets the context of the script before running it. Known arguments are stored in their typed
+   * fields, and the rest of them are stored in the script's binding.
+   *
+   * @param arguments Arguments map, the keys are the names of argument that will be called in
+   *     script, and values are the argument values mapped inside script.
+   * @param logger Logger object to inject into the script.
+   */
+  @SuppressWarnings("unchecked")
+  void bind(Map<String, Object> arguments, Logger logger) {
+    this.logger = logger;
+
+    arguments.forEach(
+        (name, value) -> {
+          switch (name) {
+            case "request" -> this.request = (RequestWrapper) value;
+            case "response" -> this.response = (ResponseBuilder) value;
+            case "webClient" -> this.webClient = (WebClient) value;
+            case "state" -> this.state = (ScriptState) value;
+            case "chunk" -> this.chunk = (ChunkWrapper) value;
+            case "context" -> this.context = (Map<String, Object>) value;
+            default -> getBinding().setVariable(name, value);
+          }
+        });
+  }
+
+  /** Clears the context of the script, so it can be reused by another execution. */
+  void unbind() {
+    this.request = null;
+    this.response = null;
+    this.logger = null;
+    this.webClient = null;
+    this.state = null;
+    this.chunk = null;
+    this.context = null;
+    getBinding().getVariables().clear();
+  }
+}
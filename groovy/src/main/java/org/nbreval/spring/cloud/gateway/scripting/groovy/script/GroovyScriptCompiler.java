@@ -0,0 +1,405 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.script;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import groovy.transform.CompileStatic;
+import groovy.transform.ThreadInterrupt;
+import groovy.transform.TimedInterrupt;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.codehaus.groovy.ast.tools.GeneralUtils;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles Groovy scripts into classes, using the compilation options of a filter. Scripts are
+ * compiled into bytecode, which is optionally stored in a cache directory, keyed by a hash of the
+ * script and the compilation options, so next compilations of the same script only need to load the
+ * stored bytecode.
+ */
+public class GroovyScriptCompiler {
+
+  private static final Logger logger = LoggerFactory.getLogger(GroovyScriptCompiler.class);
+
+  /** Extension of the files stored in the cache directory. */
+  private static final String CACHE_FILE_EXTENSION = ".gsc";
+
+  /** Location, inside the classpath, of the bytecode of precompiled scripts. */
+  public static final String PRECOMPILED_SCRIPTS_LOCATION = "META-INF/gateway-scripting/groovy";
+
+  /** Configuration of the Groovy compiler. */
+  private final CompilerConfiguration compilerConfiguration;
+
+  /** Description of the compilation options, used as part of the key of each script. */
+  private final String compilerSettings;
+
+  /** Directory used to store the bytecode of compiled scripts, or null if it's not enabled. */
+  private final Path cacheDirectory;
+
+  /**
+   * Generates a compiler with the compilation options of a filter.
+   *
+   * @param config Configuration of the filter.
+   */
+  public GroovyScriptCompiler(ScriptingFilterConfig config) {
+    this(config, GatewayScript.class);
+  }
+
+  /**
+   * Generates a compiler with the compilation options of a filter, and the base class of the
+   * scripts compiled with static compilation.
+   *
+   * @param config Configuration of the filter.
+   * @param scriptBaseClass Base class of the scripts compiled with static compilation.
+   */
+  public GroovyScriptCompiler(
+      ScriptingFilterConfig config, Class<? extends GatewayScript> scriptBaseClass) {
+    this.compilerConfiguration = getCompilerConfiguration(config, scriptBaseClass);
+    this.compilerSettings =
+        "groovy=%s;library=%s;compileStatic=%s;timeout=%s"
+            .formatted(
+                GroovySystem.getVersion(),
+                getLibraryVersion(scriptBaseClass),
+                config.isCompileStatic() ? scriptBaseClass.getName() : null,
+                config.getTimeout() != null ? config.getTimeout().toMillis() : null);
+    this.cacheDirectory =
+        config.getBytecodeCacheDirectory() != null
+            ? Paths.get(config.getBytecodeCacheDirectory())
+            : null;
+  }
+
+  /**
+   * Obtains the version of the library used as part of the key of each script, so bytecode compiled
+   * with a previous version, against other classes of the library, is never loaded. It's the
+   * implementation version of the library's jar, if it has any, and a hash of the bytecode of the
+   * scripts' base class, which also changes between builds of the same version.
+   *
+   * @param scriptBaseClass Base class of the scripts compiled with static compilation.
+   * @return The version of the library.
+   */
+  private static String getLibraryVersion(Class<? extends GatewayScript> scriptBaseClass) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+
+      for (Class<?> type = scriptBaseClass;
+          GatewayScript.class.isAssignableFrom(type);
+          type = type.getSuperclass()) {
+        try (var bytecode = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+          if (bytecode != null) {
+            digest.update(bytecode.readAllBytes());
+          }
+        }
+      }
+
+      return GroovyScriptCompiler.class.getPackage().getImplementationVersion()
+          + "/"
+          + HexFormat.of().formatHex(digest.digest(), 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm is not available", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read the script base class", e);
+    }
+  }
+
+  /**
+   * Compiles a script into a class. If the script has been precompiled with {@link
+   * GroovyScriptPrecompiler} and its bytecode is in the classpath, or the bytecode cache is enabled
+   * and contains the script, the class is loaded from the stored bytecode. Else, the script is
+   * compiled and its bytecode stored in the cache.
+   *
+   * @param script Content of the script to compile.
+   * @return The class of the script.
+   */
+  public Class<?> compile(String script) {
+    var key = getKey(script);
+    var className = getClassName(key);
+    var classes = readFromClasspath(key);
+
+    if (classes == null && cacheDirectory != null) {
+      classes = readFromCache(key);
+    }
+
+    if (classes == null) {
+      classes = compile(className, script);
+
+      if (cacheDirectory != null) {
+        writeToDirectory(cacheDirectory, key, classes);
+      }
+    }
+
+    try {
+      return new ScriptClassLoader(Thread.currentThread().getContextClassLoader(), classes)
+          .loadClass(className);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Compiled script doesn't contain its class", e);
+    }
+  }
+
+  /**
+   * Compiles a script and stores its bytecode inside a directory, in the location where {@link
+   * GroovyScriptCompiler#compile(String)} looks for precompiled scripts in the classpath.
+   *
+   * @param script Content of the script to compile.
+   * @param outputDirectory Root directory of the classpath entry where the bytecode is stored.
+   * @throws IOException If the bytecode can't be stored.
+   */
+  public void precompile(String script, Path outputDirectory) throws IOException {
+    var key = getKey(script);
+    var directory = outputDirectory.resolve(PRECOMPILED_SCRIPTS_LOCATION);
+    Files.createDirectories(directory);
+
+    try (var output = Files.newOutputStream(directory.resolve(key + CACHE_FILE_EXTENSION))) {
+      writeClasses(output, compile(getClassName(key), script));
+    }
+  }
+
+  /**
+   * Checks if a script has been precompiled, with the compilation options of this compiler, and its
+   * bytecode is in the classpath.
+   *
+   * @param script Content of the script to check.
+   * @return True if the script is loaded from the classpath without compiling it, else false.
+   */
+  public boolean isPrecompiled(String script) {
+    return Thread.currentThread()
+            .getContextClassLoader()
+            .getResource(getResourceName(getKey(script)))
+        != null;
+  }
+
+  /**
+   * Compiles a script into the bytecode of its classes. A script produces more than one class if it
+   * declares closures or inner classes.
+   *
+   * @param className Name of the class of the script.
+   * @param script Content of the script to compile.
+   * @return The bytecode of the script's classes, by class name.
+   */
+  private Map<String, byte[]> compile(String className, String script) {
+    var classLoader =
+        new GroovyClassLoader(
+            Thread.currentThread().getContextClassLoader(), compilerConfiguration);
+    var compilationUnit = new CompilationUnit(compilerConfiguration, null, classLoader);
+    compilationUnit.addSource(className + ".groovy", script);
+    compilationUnit.compile(Phases.CLASS_GENERATION);
+
+    var classes = new LinkedHashMap<String, byte[]>();
+
+    for (var groovyClass : compilationUnit.getClasses()) {
+      classes.put(groovyClass.getName(), groovyClass.getBytes());
+    }
+
+    return classes;
+  }
+
+  /**
+   * Reads the bytecode of a precompiled script from the classpath.
+   *
+   * @param key Key of the script.
+   * @return The bytecode of the script's classes, by class name, or null if the classpath doesn't
+   *     contain the script or it can't be read.
+   */
+  private Map<String, byte[]> readFromClasspath(String key) {
+    var resourceName = getResourceName(key);
+    var resource = Thread.currentThread().getContextClassLoader().getResourceAsStream(resourceName);
+
+    if (resource == null) {
+      return null;
+    }
+
+    try (var input = resource) {
+      return readClasses(input);
+    } catch (IOException e) {
+      logger.warn("Unable to read precompiled script from resource {}", resourceName, e);
+      return null;
+    }
+  }
+
+  /**
+   * Reads the bytecode of a script from the cache directory.
+   *
+   * @param key Key of the script.
+   * @return The bytecode of the script's classes, by class name, or null if the cache doesn't
+   *     contain the script or it can't be read.
+   */
+  private Map<String, byte[]> readFromCache(String key) {
+    var file = cacheDirectory.resolve(key + CACHE_FILE_EXTENSION);
+
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    try (var input = Files.newInputStream(file)) {
+      return readClasses(input);
+    } catch (IOException e) {
+      logger.warn("Unable to read compiled script from cache file {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the bytecode of a script in a directory. The file is written with a temporary name and
+   * then moved, so a partially written file is never read.
+   *
+   * @param directory Directory where the bytecode is stored.
+   * @param key Key of the script.
+   * @param classes The bytecode of the script's classes, by class name.
+   */
+  private static void writeToDirectory(Path directory, String key, Map<String, byte[]> classes) {
+    var file = directory.resolve(key + CACHE_FILE_EXTENSION);
+
+    try {
+      Files.createDirectories(directory);
+      var temporaryFile = Files.createTempFile(directory, key, ".tmp");
+
+      try (var output = Files.newOutputStream(temporaryFile)) {
+        writeClasses(output, classes);
+      }
+
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      logger.warn("Unable to write compiled script to cache file {}", file, e);
+    }
+  }
+
+  /**
+   * Reads the bytecode of the classes of a script, written by {@link
+   * GroovyScriptCompiler#writeClasses(OutputStream, Map)}.
+   *
+   * @param stream Stream with the bytecode of the script.
+   * @return The bytecode of the script's classes, by class name.
+   * @throws IOException If the stream can't be read.
+   */
+  private static Map<String, byte[]> readClasses(InputStream stream) throws IOException {
+    var input = new DataInputStream(stream);
+    var classes = new LinkedHashMap<String, byte[]>();
+    var count = input.readInt();
+
+    for (int i = 0; i < count; i++) {
+      var name = input.readUTF();
+      var bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      classes.put(name, bytes);
+    }
+
+    return classes;
+  }
+
+  /**
+   * Writes the bytecode of the classes of a script: the number of classes, and the name, length and
+   * bytecode of each one.
+   *
+   * @param stream Stream where the bytecode is written.
+   * @param classes The bytecode of the script's classes, by class name.
+   * @throws IOException If the stream can't be written.
+   */
+  private static void writeClasses(OutputStream stream, Map<String, byte[]> classes)
+      throws IOException {
+    var output = new DataOutputStream(stream);
+    output.writeInt(classes.size());
+
+    for (var entry : classes.entrySet()) {
+      output.writeUTF(entry.getKey());
+      output.writeInt(entry.getValue().length);
+      output.write(entry.getValue());
+    }
+
+    output.flush();
+  }
+
+  /**
+   * Obtains the name of the class of a script.
+   *
+   * @param key Key of the script.
+   * @return The name of the script's class.
+   */
+  private static String getClassName(String key) {
+    return "RouteScript_" + key.substring(0, 16);
+  }
+
+  /**
+   * Obtains the name of the classpath resource of a precompiled script.
+   *
+   * @param key Key of the script.
+   * @return The name of the resource.
+   */
+  private static String getResourceName(String key) {
+    return PRECOMPILED_SCRIPTS_LOCATION + "/" + key + CACHE_FILE_EXTENSION;
+  }
+
+  /**
+   * Obtains the key of a script, which is the SHA-256 hash of its content and the compilation
+   * options, so a change in any of them produces a different key.
+   *
+   * @param script Content of the script.
+   * @return The hexadecimal hash of the script.
+   */
+  private String getKey(String script) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(compilerSettings.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(script.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm is not available", e);
+    }
+  }
+
+  /**
+   * Generates the configuration of the Groovy compiler based on the filter's configuration. When
+   * static compilation is enabled, scripts extend the base class, a {@link GatewayScript}, and are
+   * compiled with {@link CompileStatic}. When a timeout is configured, scripts are compiled with
+   * {@link TimedInterrupt}, which checks the elapsed time at the start of each loop iteration,
+   * method and closure, and {@link ThreadInterrupt}, which stops the script when its thread is
+   * interrupted.
+   *
+   * @param config Configuration of the filter.
+   * @param scriptBaseClass Base class of the scripts compiled with static compilation.
+   * @return The configuration used to compile the script.
+   */
+  private static CompilerConfiguration getCompilerConfiguration(
+      ScriptingFilterConfig config, Class<? extends GatewayScript> scriptBaseClass) {
+    var compilerConfiguration = new CompilerConfiguration();
+
+    if (config.isCompileStatic()) {
+      compilerConfiguration.setScriptBaseClass(scriptBaseClass.getName());
+      compilerConfiguration.addCompilationCustomizers(
+          new ASTTransformationCustomizer(CompileStatic.class));
+    }
+
+    if (config.getTimeout() != null) {
+      compilerConfiguration.addCompilationCustomizers(
+          new ASTTransformationCustomizer(
+              Map.of(
+                  "value",
+                  config.getTimeout().toMillis(),
+                  "unit",
+                  GeneralUtils.propX(GeneralUtils.classX(TimeUnit.class), "MILLISECONDS")),
+              TimedInterrupt.class),
+          new ASTTransformationCustomizer(ThreadInterrupt.class));
+    }
+
+    return compilerConfiguration;
+  }
+}
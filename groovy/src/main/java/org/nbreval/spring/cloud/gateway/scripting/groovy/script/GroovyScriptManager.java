@@ -1,31 +1,302 @@
 package org.nbreval.spring.cloud.gateway.scripting.groovy.script;
 
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import groovy.lang.Script;
+import groovy.transform.TimedInterrupt;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
 import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
 public class GroovyScriptManager extends ScriptManager {
 
   private static final Logger logger = LoggerFactory.getLogger(GroovyScriptManager.class);
 
-  private final Class<?> scriptClass;
+  /** Compiler of the script, with the compilation options of the filter. */
+  private final GroovyScriptCompiler compiler;
+
+  /**
+   * Maximum number of idle script instances kept to be reused between executions. If it's zero, a
+   * new instance is created for each execution.
+   */
+  private final int poolSize;
+
+  /**
+   * Current version of the compiled script, published with its content, so requests never see the
+   * class of a version with the body access check of another one.
+   */
+  private volatile CompiledScript compiledScript;
 
   public GroovyScriptManager(String script) {
+    this(script, new ScriptingFilterConfig());
+  }
+
+  /**
+   * Compiles the script and prepares the manager to run it.
+   *
+   * @param script Content of the script to run.
+   * @param config Configuration of the filter, used to obtain the compilation and execution options
+   *     of the script.
+   */
+  public GroovyScriptManager(String script, ScriptingFilterConfig config) {
+    this(script, config, GatewayScript.class);
+  }
+
+  /**
+   * Compiles the script, with a base class for static compilation, and prepares the manager to run
+   * it.
+   *
+   * @param script Content of the script to run.
+   * @param config Configuration of the filter, used to obtain the compilation and execution options
+   *     of the script.
+   * @param scriptBaseClass Base class of the script when it's compiled with static compilation,
+   *     which types the variables of the filter's phase.
+   */
+  public GroovyScriptManager(
+      String script, ScriptingFilterConfig config, Class<? extends GatewayScript> scriptBaseClass) {
     super(script);
-    this.scriptClass = new GroovyShell().getClassLoader().parseClass(this.script);
+    this.compiler = new GroovyScriptCompiler(config, scriptBaseClass);
+    this.poolSize = getPoolSize(config);
+    this.compiledScript = compile(this.script);
   }
 
+  /**
+   * Runs the script. If the reuse of instances is enabled, the script is run with an instance
+   * borrowed from the pool, or a new one if there isn't any idle instance. The context of the
+   * instance is cleared after each execution, so variables assigned by the script are never seen by
+   * the next one, and then the instance is returned to the pool, unless it's already full. When the
+   * script returns a {@link Mono} or a {@link CompletionStage}, the instance is not returned until
+   * that result terminates, because its callbacks may still read the context of the instance.
+   */
   @Override
   public Object run(Map<String, Object> arguments) throws Exception {
-    var instance = (Script) scriptClass.getDeclaredConstructor().newInstance();
-    var bindings = new Binding(new HashMap<>(arguments));
-    bindings.setVariable("logger", logger);
-    instance.setBinding(bindings);
-    return instance.run();
+    var current = compiledScript;
+    var pool = current.pool();
+    var idle = pool != null ? pool.poll() : null;
+    var instance = idle != null ? idle : newInstance(current);
+
+    if (pool == null) {
+      bind(instance, arguments);
+      return instance.run();
+    }
+
+    var released = new AtomicBoolean();
+    Runnable release =
+        () -> {
+          if (released.compareAndSet(false, true)) {
+            unbind(instance);
+            pool.offer(instance);
+          }
+        };
+    var async = false;
+
+    try {
+      bind(instance, arguments);
+      var result = instance.run();
+
+      if (result instanceof Mono<?> mono) {
+        async = true;
+        return mono.doFinally(signal -> release.run());
+      } else if (result instanceof CompletionStage<?> stage) {
+        async = true;
+        return stage.whenComplete((value, error) -> release.run());
+      } else {
+        return result;
+      }
+    } finally {
+      if (!async) {
+        release.run();
+      }
+    }
+  }
+
+  /** Scripts are reloaded by compiling their new version. */
+  @Override
+  public boolean supportsReload() {
+    return true;
+  }
+
+  /**
+   * Compiles the new version of the script and replaces the current one, with its pool of
+   * instances, atomically. If the compilation fails, the current version is kept.
+   */
+  @Override
+  public void reload(String script) {
+    this.compiledScript = compile(script);
+    setScript(script);
+  }
+
+  /**
+   * The check is read from the current version, so it always matches the class which is run. It's
+   * made on the syntax tree of the script, so accesses through aliases or accessors, like <i>def r
+   * = request; r.body</i> or <i>getRequest().getBody()</i>, are detected, and mentions inside
+   * comments or strings are ignored.
+   */
+  @Override
+  public boolean usesBody() {
+    return compiledScript.usesBody();
+  }
+
+  /**
+   * Compiles a version of the script.
+   *
+   * @param script Content of the script.
+   * @return The compiled script, with an empty pool of instances.
+   */
+  private CompiledScript compile(String script) {
+    var scriptClass = compiler.compile(script);
+    return new CompiledScript(
+        script,
+        BodyAccessVisitor.accessesBody(script),
+        scriptClass,
+        poolSize > 0 ? new ArrayBlockingQueue<>(poolSize) : null);
+  }
+
+  /**
+   * Creates a new instance of a compiled script, with an empty binding.
+   *
+   * @param compiledScript Compiled script to instantiate.
+   * @return The new script instance.
+   * @throws ReflectiveOperationException If the script class can't be instantiated.
+   */
+  private static Script newInstance(CompiledScript compiledScript)
+      throws ReflectiveOperationException {
+    var instance = (Script) compiledScript.scriptClass().getDeclaredConstructor().newInstance();
+    instance.setBinding(new Binding(new HashMap<>()));
+    return instance;
+  }
+
+  /**
+   * Sets the context of a script instance before running it.
+   *
+   * @param instance Script instance to run.
+   * @param arguments Arguments map, with the variables to bind to the script.
+   */
+  private void bind(Script instance, Map<String, Object> arguments) {
+    if (instance instanceof GatewayScript gatewayScript) {
+      gatewayScript.bind(arguments, logger);
+    } else {
+      var bindings = instance.getBinding();
+      arguments.forEach(bindings::setVariable);
+      bindings.setVariable("logger", logger);
+    }
+  }
+
+  /**
+   * Clears the context of a script instance after running it.
+   *
+   * @param instance Script instance already run.
+   */
+  private void unbind(Script instance) {
+    if (instance instanceof GatewayScript gatewayScript) {
+      gatewayScript.unbind();
+    } else {
+      instance.getBinding().getVariables().clear();
+    }
+  }
+
+  /**
+   * Obtains the size of the pool of idle script instances. Scripts with a timeout are never reused,
+   * because {@link TimedInterrupt} starts counting the time when the instance is created, not when
+   * it's run.
+   *
+   * @param config Configuration of the filter.
+   * @return The size of the pool of script instances, or zero if a new instance must be created for
+   *     each run.
+   */
+  private static int getPoolSize(ScriptingFilterConfig config) {
+    if (config.getScriptPoolSize() > 0 && config.getTimeout() != null) {
+      logger.warn("Script instances are not reused because the script has a timeout");
+      return 0;
+    } else {
+      return Math.max(config.getScriptPoolSize(), 0);
+    }
+  }
+
+  /**
+   * Version of the compiled script, with its own pool of instances, so executions which started
+   * with a version finish with it, even if the script is reloaded.
+   *
+   * @param script Content of the script.
+   * @param usesBody Indicates if the script accesses the body.
+   * @param scriptClass Class of the compiled script.
+   * @param pool Pool of idle script instances, or null if instances are not reused.
+   */
+  private record CompiledScript(
+      String script, boolean usesBody, Class<?> scriptClass, Queue<Script> pool) {}
+
+  /**
+   * Finds the accesses to the body in the syntax tree of a script. The receiver of a call isn't
+   * known until the script is run, so any call to <i>getBody()</i>, <i>setBody(...)</i>,
+   * <i>getBodyAsString()</i> or <i>getBodyAsJson()</i>, and any read or write of the <i>body</i>,
+   * <i>bodyAsString</i> or <i>bodyAsJson</i> properties, is an access, whatever its receiver is.
+   * Building a custom response with <i>response.status(403).body("...")</i> calls a method named
+   * <i>body</i>, which isn't an access.
+   */
+  private static class BodyAccessVisitor extends ClassCodeVisitorSupport {
+
+    /** Names of the methods which access the body. */
+    private static final Set<String> BODY_METHODS =
+        Set.of("getBody", "setBody", "getBodyAsString", "getBodyAsJson");
+
+    /** Names of the properties which access the body. */
+    private static final Set<String> BODY_PROPERTIES = Set.of("body", "bodyAsString", "bodyAsJson");
+
+    /** Indicates if an access to the body has been found. */
+    private boolean found;
+
+    /**
+     * Checks if a script accesses the body. The script is only parsed, without generating its
+     * classes, so the check can be made on scripts loaded from precompiled bytecode.
+     *
+     * @param script Content of the script.
+     * @return True if the script may access the body, else false.
+     */
+    static boolean accessesBody(String script) {
+      var compilationUnit = new CompilationUnit();
+      compilationUnit.addSource("BodyAccessCheck.groovy", script);
+      compilationUnit.compile(Phases.CONVERSION);
+
+      var visitor = new BodyAccessVisitor();
+
+      for (var module : compilationUnit.getAST().getModules()) {
+        for (var classNode : module.getClasses()) {
+          visitor.visitClass(classNode);
+        }
+      }
+
+      return visitor.found;
+    }
+
+    @Override
+    public void visitMethodCallExpression(MethodCallExpression call) {
+      found |= BODY_METHODS.contains(call.getMethodAsString());
+      super.visitMethodCallExpression(call);
+    }
+
+    @Override
+    public void visitPropertyExpression(PropertyExpression expression) {
+      found |= BODY_PROPERTIES.contains(expression.getPropertyAsString());
+      super.visitPropertyExpression(expression);
+    }
+
+    @Override
+    protected SourceUnit getSourceUnit() {
+      return null;
+    }
   }
 }
@@ -0,0 +1,86 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.script;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+
+/**
+ * Command line tool used to compile scripts during the build of a project, so they are loaded from
+ * the classpath instead of compiled when the gateway starts. It compiles all files inside a
+ * directory, and stores their bytecode inside an output directory, which must be added to the
+ * resources of the project.
+ *
+ * <p>Usage: {@code GroovyScriptPrecompiler <scriptsDirectory> <outputDirectory> [--compileStatic]
+ * [--timeout=<ISO-8601 duration>] [--responseFilter]}, where <i>--responseFilter</i> compiles the
+ * scripts of response filters. The options must be the same ones configured in the filters which
+ * use the scripts, because they are part of the key of each compiled script.
+ */
+public class GroovyScriptPrecompiler {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      throw new IllegalArgumentException(
+          "Usage: GroovyScriptPrecompiler <scriptsDirectory> <outputDirectory> [--compileStatic]"
+              + " [--timeout=<ISO-8601 duration>] [--responseFilter]");
+    }
+
+    var config = new ScriptingFilterConfig();
+    Class<? extends GatewayScript> scriptBaseClass = GatewayScript.class;
+
+    for (int i = 2; i < args.length; i++) {
+      if (args[i].equals("--compileStatic")) {
+        config.setCompileStatic(true);
+      } else if (args[i].startsWith("--timeout=")) {
+        config.setTimeout(Duration.parse(args[i].substring("--timeout=".length())));
+      } else if (args[i].equals("--responseFilter")) {
+        scriptBaseClass = GatewayResponseScript.class;
+      } else {
+        throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    precompile(Paths.get(args[0]), Paths.get(args[1]), config, scriptBaseClass);
+  }
+
+  /**
+   * Compiles all files inside a directory, and its subdirectories.
+   *
+   * @param scriptsDirectory Directory with the scripts to compile.
+   * @param outputDirectory Directory where the bytecode of the scripts is stored.
+   * @param config Configuration with the compilation options of the scripts.
+   * @throws IOException If any script can't be read, or its bytecode can't be stored.
+   */
+  public static void precompile(
+      Path scriptsDirectory, Path outputDirectory, ScriptingFilterConfig config)
+      throws IOException {
+    precompile(scriptsDirectory, outputDirectory, config, GatewayScript.class);
+  }
+
+  /**
+   * Compiles all files inside a directory, and its subdirectories, with a base class for static
+   * compilation.
+   *
+   * @param scriptsDirectory Directory with the scripts to compile.
+   * @param outputDirectory Directory where the bytecode of the scripts is stored.
+   * @param config Configuration with the compilation options of the scripts.
+   * @param scriptBaseClass Base class of the scripts compiled with static compilation.
+   * @throws IOException If any script can't be read, or its bytecode can't be stored.
+   */
+  public static void precompile(
+      Path scriptsDirectory,
+      Path outputDirectory,
+      ScriptingFilterConfig config,
+      Class<? extends GatewayScript> scriptBaseClass)
+      throws IOException {
+    var compiler = new GroovyScriptCompiler(config, scriptBaseClass);
+
+    try (var files = Files.walk(scriptsDirectory)) {
+      for (var file : files.filter(Files::isRegularFile).toList()) {
+        compiler.precompile(Files.readString(file), outputDirectory);
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy.script;
+
+import java.util.Map;
+
+/**
+ * Class loader used to define the classes of a compiled script from their bytecode, whether they
+ * have just been compiled or have been read from a cache.
+ */
+class ScriptClassLoader extends ClassLoader {
+
+  /** Bytecode of the classes of the script, by class name. */
+  private final Map<String, byte[]> classes;
+
+  ScriptClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+    super(parent);
+    this.classes = classes;
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    var bytes = classes.get(name);
+
+    if (bytes == null) {
+      throw new ClassNotFoundException(name);
+    }
+
+    return defineClass(name, bytes, 0, bytes.length);
+  }
+}
@@ -0,0 +1,253 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestAsyncResults {
+
+  private static HttpServer server;
+
+  private static String serverUrl;
+
+  @BeforeAll
+  static void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/policy",
+        exchange -> {
+          var body = "gold".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.createContext(
+        "/slow",
+        exchange -> {
+          try {
+            Thread.sleep(1000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          exchange.sendResponseHeaders(204, -1);
+          exchange.close();
+        });
+    server.start();
+    serverUrl = "http://localhost:" + server.getAddress().getPort();
+  }
+
+  @AfterAll
+  static void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void testMonoResult() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        import reactor.core.publisher.Mono
+
+        Mono.just("async").map { value ->
+            request.setHeader("X-Async", value)
+            request
+        }
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Async")).isEqualTo(List.of("async"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testCompletionStageResult() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        import java.util.concurrent.CompletableFuture
+
+        CompletableFuture.supplyAsync {
+            request.setHeader("X-Async", "future")
+            request
+        }
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Async")).isEqualTo(List.of("future"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testPooledScriptWithDeferredResult() throws Exception {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        import java.time.Duration
+        import reactor.core.publisher.Mono
+
+        Mono.delay(Duration.ofMillis(request.getFirstQueryParam("delay") as long)).map {
+            request.setHeader("X-Id", request.getFirstQueryParam("id"))
+            request
+        }
+        """);
+    filterConfig.setScriptPoolSize(1);
+
+    var filter = filterFactory.apply(filterConfig);
+    var slowExchange =
+        MockServerWebExchange.from(MockServerHttpRequest.get("/api/test?id=slow&delay=300"));
+    var fastExchange =
+        MockServerWebExchange.from(MockServerHttpRequest.get("/api/test?id=fast&delay=0"));
+
+    var slowResult =
+        filter
+            .filter(
+                slowExchange,
+                ex -> {
+                  assertThat(ex.getRequest().getHeaders().get("X-Id")).isEqualTo(List.of("slow"));
+                  return Mono.empty();
+                })
+            .toFuture();
+
+    StepVerifier.create(
+            filter.filter(
+                fastExchange,
+                ex -> {
+                  assertThat(ex.getRequest().getHeaders().get("X-Id")).isEqualTo(List.of("fast"));
+                  return Mono.empty();
+                }))
+        .verifyComplete();
+
+    slowResult.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void testAsyncShortCircuit() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        import reactor.core.publisher.Mono
+
+        Mono.fromSupplier { response.status(403).body("Denied") }
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.error(new IllegalStateException())))
+        .verifyComplete();
+    assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+  }
+
+  @Test
+  void testEmptyAsyncResult() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        import reactor.core.publisher.Mono
+
+        Mono.empty()
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+
+  @Test
+  void testWebClient() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        webClient.get()
+            .uri("%s/policy")
+            .retrieve()
+            .bodyToMono(String)
+            .map { tier ->
+                request.setHeader("X-Tier", tier)
+                request
+            }
+        """
+                .formatted(serverUrl));
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Tier")).isEqualTo(List.of("gold"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testWebClientTimeout() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        webClient.get()
+            .uri("%s/slow")
+            .retrieve()
+            .toBodilessEntity()
+            .thenReturn(request)
+        """
+                .formatted(serverUrl));
+    filterConfig.setWebClientTimeout(Duration.ofMillis(100));
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.GATEWAY_TIMEOUT)
+        .verify(Duration.ofSeconds(5));
+  }
+}
@@ -0,0 +1,152 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyBodyChunkScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestBodyChunks {
+
+  private static final String SCRIPT =
+      """
+      context.count = (context.count ?: 0) + 1
+      if (chunk.isLast()) {
+          chunk.setText("!" + context.count)
+      } else if (chunk.getText() == "drop") {
+          return null
+      } else {
+          chunk.setText(chunk.getText().toUpperCase())
+      }
+      chunk
+      """;
+
+  private static final String STATIC_SCRIPT =
+      """
+      if (chunk.isLast()) {
+          chunk.setText("|" + chunk.getOffset())
+      } else {
+          context.put("size", chunk.getSize())
+      }
+      return chunk
+      """;
+
+  @Test
+  void testTransformChunks() {
+    var filter =
+        new GroovyBodyChunkScriptingFilterFactory().apply(new ScriptingFilterConfig(SCRIPT));
+
+    assertThat(getDownstreamBody(filter, "abc", "drop", "def")).isEqualTo("ABCDEF!4");
+  }
+
+  @Test
+  void testTransformChunksWithStaticCompilation() {
+    var filterConfig = new ScriptingFilterConfig(STATIC_SCRIPT);
+    filterConfig.setCompileStatic(true);
+
+    var filter = new GroovyBodyChunkScriptingFilterFactory().apply(filterConfig);
+
+    assertThat(getDownstreamBody(filter, "abc", "de")).isEqualTo("abcde|5");
+  }
+
+  @Test
+  void testInvalidChunkResult() {
+    var filter =
+        new GroovyBodyChunkScriptingFilterFactory().apply(new ScriptingFilterConfig("'invalid'"));
+
+    var exchange = getExchange("abc");
+
+    GatewayFilterChain chain = (ex) -> DataBufferUtils.join(ex.getRequest().getBody()).then();
+
+    StepVerifier.create(filter.filter(exchange, chain))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+
+  @Test
+  void testResubscribeBody() {
+    var filterConfig = new ScriptingFilterConfig(STATIC_SCRIPT);
+    filterConfig.setCompileStatic(true);
+
+    var filter = new GroovyBodyChunkScriptingFilterFactory().apply(filterConfig);
+    var exchange = getExchange("abc", "de");
+    var downstreamBodies = new ArrayList<String>();
+
+    GatewayFilterChain chain =
+        (ex) ->
+            DataBufferUtils.join(ex.getRequest().getBody())
+                .repeat(1)
+                .doOnNext(body -> downstreamBodies.add(body.toString(StandardCharsets.UTF_8)))
+                .then();
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+    assertThat(downstreamBodies).containsExactly("abcde|5", "abcde|5");
+  }
+
+  @Test
+  void testRequestWithoutBodyKeepsHeaders() {
+    var filter =
+        new GroovyBodyChunkScriptingFilterFactory().apply(new ScriptingFilterConfig(SCRIPT));
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          var headers = ex.getRequest().getHeaders();
+          assertThat(headers.containsKey(HttpHeaders.TRANSFER_ENCODING)).isFalse();
+          assertThat(headers).isSameAs(ex.getRequest().getHeaders());
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  private static String getDownstreamBody(GatewayFilter filter, String... chunks) {
+    var exchange = getExchange(chunks);
+    var downstreamBody = new StringBuilder();
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          var headers = ex.getRequest().getHeaders();
+          assertThat(headers.containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+          assertThat(headers.getFirst(HttpHeaders.TRANSFER_ENCODING)).isEqualTo("chunked");
+
+          return DataBufferUtils.join(ex.getRequest().getBody())
+              .doOnNext(body -> downstreamBody.append(body.toString(StandardCharsets.UTF_8)))
+              .then();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+    return downstreamBody.toString();
+  }
+
+  private static MockServerWebExchange getExchange(String... chunks) {
+    var bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    var body =
+        Flux.just(chunks).map(chunk -> bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    var request =
+        MockServerHttpRequest.post("/api/test")
+            .header(HttpHeaders.CONTENT_LENGTH, "100")
+            .body(body);
+
+    return MockServerWebExchange.from(request);
+  }
+}
@@ -0,0 +1,87 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyResponseScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestBytecodeCache {
+
+  private static final String SCRIPT =
+      """
+      def values = ["A", "B"].collect { it.toLowerCase() }
+      request.setHeader("X-TestHeader", values as String[])
+      request
+      """;
+
+  @Test
+  void testCachedScriptIsReused(@TempDir Path cacheDirectory) throws IOException {
+    for (int i = 0; i < 2; i++) {
+      var filterConfig = new ScriptingFilterConfig(SCRIPT);
+      filterConfig.setBytecodeCacheDirectory(cacheDirectory.toString());
+
+      var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+
+      var request = MockServerHttpRequest.get("/api/test").build();
+      var exchange = MockServerWebExchange.from(request);
+
+      GatewayFilterChain chain =
+          (ex) -> {
+            assertThat(ex.getRequest().getHeaders().get("X-TestHeader"))
+                .isEqualTo(List.of("a", "b"));
+            return Mono.empty();
+          };
+
+      filter.filter(exchange, chain).block();
+
+      try (var files = Files.list(cacheDirectory)) {
+        assertThat(files.toList()).hasSize(1);
+      }
+    }
+  }
+
+  @Test
+  void testCompilationOptionsChangeKey(@TempDir Path cacheDirectory) throws IOException {
+    var dynamicConfig = new ScriptingFilterConfig(SCRIPT);
+    dynamicConfig.setBytecodeCacheDirectory(cacheDirectory.toString());
+    new GroovyScriptingFilterFactory().apply(dynamicConfig);
+
+    var staticConfig = new ScriptingFilterConfig("request");
+    staticConfig.setBytecodeCacheDirectory(cacheDirectory.toString());
+    staticConfig.setCompileStatic(true);
+    new GroovyScriptingFilterFactory().apply(staticConfig);
+
+    var dynamicSimpleConfig = new ScriptingFilterConfig("request");
+    dynamicSimpleConfig.setBytecodeCacheDirectory(cacheDirectory.toString());
+    new GroovyScriptingFilterFactory().apply(dynamicSimpleConfig);
+
+    try (var files = Files.list(cacheDirectory)) {
+      assertThat(files.toList()).hasSize(3);
+    }
+  }
+
+  @Test
+  void testScriptBaseClassChangesKey(@TempDir Path cacheDirectory) throws IOException {
+    var filterConfig = new ScriptingFilterConfig("response");
+    filterConfig.setBytecodeCacheDirectory(cacheDirectory.toString());
+    filterConfig.setCompileStatic(true);
+
+    new GroovyScriptingFilterFactory().apply(filterConfig);
+    new GroovyResponseScriptingFilterFactory().apply(filterConfig);
+
+    try (var files = Files.list(cacheDirectory)) {
+      assertThat(files.toList()).hasSize(2);
+    }
+  }
+}
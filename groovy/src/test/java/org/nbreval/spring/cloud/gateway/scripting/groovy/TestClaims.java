@@ -8,10 +8,14 @@ import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import java.text.ParseException;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ClaimsDecoder;
 import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
 import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
@@ -144,6 +148,118 @@ public class TestClaims {
     filter.filter(exchange, chain).block();
   }
 
+  @Test
+  void testTypedClaims() throws JOSEException {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Exp", String.valueOf(request.getClaimAsLong("exp")))
+        request.setHeader("X-Aud", String.valueOf(request.getClaimAsList("aud")))
+        request.setHeader("X-Groups", String.valueOf(request.getClaimAsList("user_context.groups").size()))
+        request.setHeader("X-Version", request.getClaimAsString("metadata.version"))
+        request.setHeader("X-Missing", String.valueOf(request.getClaim("user_context.groups.5")))
+        request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request =
+        MockServerHttpRequest.get("/api/test")
+            .header("Authorization", "Bearer %s".formatted(getTestToken()))
+            .build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          var headers = ex.getRequest().getHeaders();
+          assertThat(headers.getFirst("X-Exp")).isEqualTo("1900000000");
+          assertThat(headers.getFirst("X-Aud")).isEqualTo("[gateway]");
+          assertThat(headers.getFirst("X-Groups")).isEqualTo("2");
+          assertThat(headers.getFirst("X-Version")).isEqualTo("1.0");
+          assertThat(headers.getFirst("X-Missing")).isEqualTo("null");
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+  }
+
+  @Test
+  void testLazyClaimsDecoder() throws JOSEException {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Exp", String.valueOf(request.getClaimAsLong("exp")))
+        request.setHeader("X-Aud", String.valueOf(request.getClaimAsList("aud")))
+        request.setHeader("X-Group", request.getClaimAsString("user_context.groups.1"))
+        request.setHeader("X-Theme", request.getClaimAsString("user_context.profile.theme"))
+        request.setHeader("X-Missing", String.valueOf(request.getClaim("user_context.groups.5")))
+        request.setHeader("X-Subject", request.getClaims().get("sub"))
+        request
+        """);
+    filterConfig.setClaimsDecoder(ClaimsDecoder.LAZY);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request =
+        MockServerHttpRequest.get("/api/test")
+            .header("Authorization", "Bearer %s".formatted(getTestToken()))
+            .build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          var headers = ex.getRequest().getHeaders();
+          assertThat(headers.getFirst("X-Exp")).isEqualTo("1900000000");
+          assertThat(headers.getFirst("X-Aud")).isEqualTo("[gateway]");
+          assertThat(headers.getFirst("X-Group")).isEqualTo("editor");
+          assertThat(headers.getFirst("X-Theme")).isEqualTo("dark");
+          assertThat(headers.getFirst("X-Missing")).isEqualTo("null");
+          assertThat(headers.getFirst("X-Subject")).isEqualTo("test");
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+  }
+
+  @Test
+  void testLazyClaimsMatchFullParse() throws JOSEException, ParseException {
+    var token = getTestToken();
+
+    assertThat(TokenManager.getLazyTokenClaims(token).toMap())
+        .isEqualTo(TokenManager.getTokenClaims(token));
+  }
+
+  @Test
+  void testLazyClaimsDecoderWithInvalidToken() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Subject", String.valueOf(request.getClaim("sub")))
+        request.setHeader("X-Claims", String.valueOf(request.getClaims().size()))
+        request
+        """);
+    filterConfig.setClaimsDecoder(ClaimsDecoder.LAZY);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request =
+        MockServerHttpRequest.get("/api/test").header("Authorization", "Bearer invalid").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          var headers = ex.getRequest().getHeaders();
+          assertThat(headers.getFirst("X-Subject")).isEqualTo("null");
+          assertThat(headers.getFirst("X-Claims")).isEqualTo("0");
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+  }
+
   /**
    * Util method to generate a JWT with some claims to make easy to check all claims-based tests
    *
@@ -163,6 +279,8 @@ public class TestClaims {
     var claimsSet =
         new JWTClaimsSet.Builder()
             .subject("test")
+            .audience("gateway")
+            .expirationTime(new Date(1_900_000_000_000L))
             .claim("user_context", userData)
             .claim("metadata", Map.of("version", "1.0"))
             .build();
@@ -0,0 +1,152 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyResponseScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestCompileStatic {
+
+  @Test
+  void testStaticScript() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        String value = request.getFirstHeader("X-Input")
+        logger.debug("Input header: {}", value)
+        request.setHeader("X-TestHeader", value.toUpperCase())
+        request.removeHeader("X-Input")
+        return request
+        """);
+    filterConfig.setCompileStatic(true);
+    filterConfig.setScriptPoolSize(1);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    for (var value : List.of("a", "b")) {
+      var request = MockServerHttpRequest.get("/api/test").header("X-Input", value).build();
+      var exchange = MockServerWebExchange.from(request);
+
+      GatewayFilterChain chain =
+          (ex) -> {
+            assertThat(ex.getRequest().getHeaders().get("X-TestHeader"))
+                .isEqualTo(List.of(value.toUpperCase()));
+            assertThat(ex.getRequest().getHeaders().get("X-Input")).isNull();
+            return Mono.empty();
+          };
+
+      filter.filter(exchange, chain).block();
+    }
+  }
+
+  @Test
+  void testStaticScriptResponse() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (request.getHeader("Authorization") == null) {
+            response.consume(401, "Unauthorized")
+        }
+        request
+        """);
+    filterConfig.setCompileStatic(true);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.UNAUTHORIZED)
+        .verify();
+  }
+
+  @Test
+  void testStaticScriptShortCircuit() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (request.getHeader("Authorization") == null) {
+            return response.status(401).header("WWW-Authenticate", "Bearer").body("Unauthorized")
+        }
+        request
+        """);
+    filterConfig.setCompileStatic(true);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty())).verifyComplete();
+    assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    assertThat(exchange.getResponse().getHeaders().get("WWW-Authenticate"))
+        .isEqualTo(List.of("Bearer"));
+  }
+
+  @Test
+  void testUntypedScriptIsRejected() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.unknownMethod()
+        request
+        """);
+    filterConfig.setCompileStatic(true);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+
+  @Test
+  void testStaticResponseFilter() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        response.setStatus(202)
+        response.setHeader("X-Upstream", response.getFirstHeader("X-Upstream").toUpperCase())
+        response
+        """);
+    filterConfig.setCompileStatic(true);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          ex.getResponse().getHeaders().set("X-Upstream", "value");
+          return ex.getResponse().setComplete();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+    assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+    assertThat(exchange.getResponse().getHeaders().getFirst("X-Upstream")).isEqualTo("VALUE");
+  }
+}
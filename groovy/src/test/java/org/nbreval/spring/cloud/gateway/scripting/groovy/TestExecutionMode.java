@@ -0,0 +1,90 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptExecutionMode;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestExecutionMode {
+
+  @Test
+  void testVirtualThreadExecution() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Virtual", String.valueOf(Thread.currentThread().isVirtual()))
+        request
+        """);
+    filterConfig.setExecutionMode(ScriptExecutionMode.VIRTUAL_THREAD);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Virtual")).isEqualTo(List.of("true"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testBoundedElasticResponse() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (request.getHeader("Authorization") == null) {
+            response.consume(401, "Unauthorized")
+        }
+        request
+        """);
+    filterConfig.setExecutionMode(ScriptExecutionMode.BOUNDED_ELASTIC);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.UNAUTHORIZED
+                    && "Unauthorized".equals(e.getReason()))
+        .verify();
+  }
+
+  @Test
+  void testOffloadedInvalidResult() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig = new ScriptingFilterConfig("null");
+    filterConfig.setExecutionMode(ScriptExecutionMode.VIRTUAL_THREAD);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+}
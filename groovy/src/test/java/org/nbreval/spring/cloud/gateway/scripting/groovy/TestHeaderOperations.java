@@ -230,4 +230,35 @@ public class TestHeaderOperations {
 
     filter.filter(exchange, chain).block();
   }
+
+  @Test
+  void testReadPendingHeaderChanges() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-First", "A")
+        request.setHeader("X-Second", request.getFirstHeader("X-First") + "B")
+        request.removeHeader("X-Original")
+        request.setHeader("X-Third", String.valueOf(request.getHeader("X-Original")))
+        return request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").header("X-Original", "O").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          var headers = ex.getRequest().getHeaders();
+          assertThat(headers.get("X-First")).isEqualTo(List.of("A"));
+          assertThat(headers.get("X-Second")).isEqualTo(List.of("AB"));
+          assertThat(headers.get("X-Third")).isEqualTo(List.of("null"));
+          assertThat(headers.containsKey("X-Original")).isFalse();
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+  }
 }
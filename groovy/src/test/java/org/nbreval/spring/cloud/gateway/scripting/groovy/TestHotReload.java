@@ -0,0 +1,117 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.script.ScriptManager;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestHotReload {
+
+  private static final String SCRIPT =
+      """
+      request.setHeader("X-TestHeader", "%s")
+      request
+      """;
+
+  @Test
+  void testScriptIsReloadedWhenFileChanges(@TempDir Path directory) throws Exception {
+    var scriptFile = directory.resolve("script.groovy");
+    Files.writeString(scriptFile, SCRIPT.formatted("A"));
+
+    var filterConfig = new ScriptingFilterConfig(scriptFile.toString());
+    filterConfig.setHotReload(true);
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+
+    assertThat(getHeader(filter)).isEqualTo(List.of("A"));
+
+    Files.writeString(scriptFile, SCRIPT.formatted("B"));
+    assertThat(waitForHeader(filter, List.of("B"))).isEqualTo(List.of("B"));
+
+    Files.writeString(scriptFile, "request.setHeader(");
+    Thread.sleep(2000);
+    assertThat(getHeader(filter)).isEqualTo(List.of("B"));
+  }
+
+  @Test
+  void testInlineScriptIgnoresHotReload() {
+    var filterConfig = new ScriptingFilterConfig(SCRIPT.formatted("A"));
+    filterConfig.setHotReload(true);
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+
+    assertThat(getHeader(filter)).isEqualTo(List.of("A"));
+  }
+
+  @Test
+  void testHotReloadRequiresReloadableManager(@TempDir Path directory) throws Exception {
+    var scriptFile = directory.resolve("script.groovy");
+    Files.writeString(scriptFile, SCRIPT.formatted("A"));
+
+    var filterConfig = new ScriptingFilterConfig(scriptFile.toString());
+    filterConfig.setHotReload(true);
+
+    var filterFactory =
+        new GroovyScriptingFilterFactory() {
+          @Override
+          protected ScriptManager getScriptManager(ScriptingFilterConfig config) {
+            return new ScriptManager(SCRIPT) {
+              @Override
+              public Object run(Map<String, Object> arguments) {
+                return arguments.get("request");
+              }
+            };
+          }
+        };
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+
+  private static List<String> waitForHeader(GatewayFilter filter, List<String> expected)
+      throws InterruptedException {
+    var deadline = System.nanoTime() + 10_000_000_000L;
+    var header = getHeader(filter);
+
+    while (!expected.equals(header) && System.nanoTime() < deadline) {
+      Thread.sleep(100);
+      header = getHeader(filter);
+    }
+
+    return header;
+  }
+
+  private static List<String> getHeader(GatewayFilter filter) {
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+    var header = new AtomicReference<List<String>>();
+
+    filter
+        .filter(
+            exchange,
+            ex -> {
+              header.set(ex.getRequest().getHeaders().get("X-TestHeader"));
+              return Mono.empty();
+            })
+        .block();
+
+    return header.get();
+  }
+}
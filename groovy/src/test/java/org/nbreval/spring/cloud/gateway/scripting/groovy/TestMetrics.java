@@ -0,0 +1,88 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.MicrometerScriptMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestMetrics {
+
+  @Test
+  void testScriptMetrics() {
+    var registry = new SimpleMeterRegistry();
+    var filterFactory = new GroovyScriptingFilterFactory();
+    filterFactory.setMetrics(new MicrometerScriptMetrics(registry));
+
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        switch (request.getFirstHeader("X-Action")) {
+            case "reject": response.consume(429, "Too many requests"); break
+            case "fail": throw new IllegalStateException("Failed")
+            case "invalid": return "invalid"
+        }
+        request
+        """);
+    filterConfig.setRouteId("route_1");
+
+    var filter = filterFactory.apply(filterConfig);
+
+    for (var action : new String[] {"none", "reject", "reject", "fail", "invalid"}) {
+      var request = MockServerHttpRequest.get("/api/test").header("X-Action", action).build();
+      var exchange = MockServerWebExchange.from(request);
+      filter.filter(exchange, ex -> Mono.empty()).onErrorComplete().block();
+    }
+
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.COMPILATION_METER)
+                .tag("route", "route_1")
+                .tag("filter", "GroovyScripting")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(registry.get(MicrometerScriptMetrics.EXECUTION_METER).timer().count()).isEqualTo(5);
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.SHORT_CIRCUITS_METER)
+                .tag("status", "429")
+                .counter()
+                .count())
+        .isEqualTo(2);
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.ERRORS_METER)
+                .tag("exception", "IllegalStateException")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(registry.get(MicrometerScriptMetrics.INVALID_RESULTS_METER).counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testTokenCacheMetrics() {
+    var registry = new SimpleMeterRegistry();
+    new MicrometerScriptMetrics(registry);
+
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.TOKEN_CACHE_REQUESTS_METER)
+                .tag("result", "hit")
+                .functionCounter())
+        .isNotNull();
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.TOKEN_CACHE_REQUESTS_METER)
+                .tag("result", "miss")
+                .functionCounter())
+        .isNotNull();
+    assertThat(registry.get(MicrometerScriptMetrics.TOKEN_CACHE_SIZE_METER).gauge()).isNotNull();
+  }
+}
@@ -0,0 +1,47 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.script.GroovyScriptCompiler;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestPrecompiledScripts {
+
+  @Test
+  void testClasspathScriptIsPrecompiled() throws IOException {
+    var filterConfig = new ScriptingFilterConfig("classpath:scripts/precompiled-header.groovy");
+
+    assertThat(new GroovyScriptCompiler(filterConfig).isPrecompiled(filterConfig.getScript()))
+        .isTrue();
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Precompiled")).isEqualTo(List.of("true"));
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+  }
+
+  @Test
+  void testDifferentOptionsAreNotPrecompiled() throws IOException {
+    var filterConfig = new ScriptingFilterConfig("classpath:/scripts/precompiled-header.groovy");
+    filterConfig.setCompileStatic(true);
+
+    assertThat(new GroovyScriptCompiler(filterConfig).isPrecompiled(filterConfig.getScript()))
+        .isFalse();
+  }
+}
@@ -234,4 +234,31 @@ public class TestQueryParamsOperations {
 
     filter.filter(exchange, chain).block();
   }
+
+  @Test
+  void testReadPendingQueryParamChanges() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setQueryParam("a", "x%2Cy")
+        request.setQueryParam("b", request.getFirstQueryParam("a") + "z")
+        request.removeQueryParam("c")
+        request.setQueryParam("d", String.valueOf(request.getFirstQueryParam("c")))
+        return request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test?c=3&e=5").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getURI().getRawQuery()).isEqualTo("e=5&a=x%2Cy&b=x,yz&d=null");
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+  }
 }
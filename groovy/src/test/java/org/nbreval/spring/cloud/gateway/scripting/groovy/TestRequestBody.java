@@ -0,0 +1,234 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestRequestBody {
+
+  @Test
+  void testJsonBody() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        def body = request.getBodyAsJson()
+        request.setHeader("X-User", body.user)
+        request.setHeader("X-Role", body.roles[1])
+        request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var content = "{\"user\": \"alice\", \"roles\": [\"reader\", \"writer\"]}";
+    var request =
+        MockServerHttpRequest.post("/api/test")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(content);
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-User")).isEqualTo(List.of("alice"));
+          assertThat(ex.getRequest().getHeaders().get("X-Role")).isEqualTo(List.of("writer"));
+
+          return DataBufferUtils.join(ex.getRequest().getBody())
+              .doOnNext(
+                  body -> assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo(content))
+              .then();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testStringBody() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Length", String.valueOf(request.getBodyAsString().length()))
+        request.setHeader("X-Bytes", String.valueOf(request.getBody().length))
+        request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.post("/api/test").body("año");
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Length")).isEqualTo(List.of("3"));
+          assertThat(ex.getRequest().getHeaders().get("X-Bytes")).isEqualTo(List.of("4"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testEmptyBody() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Body", "[" + request.getBodyAsString() + "]")
+        request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Body")).isEqualTo(List.of("[]"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testBodyReadThroughAlias() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        def r = request
+        r.setHeader("X-Body", new String(r.body, "UTF-8"))
+        r.setHeader("X-Length", String.valueOf(r.getBodyAsString().length()))
+        r
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.post("/api/test").body("content");
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Body")).isEqualTo(List.of("content"));
+          assertThat(ex.getRequest().getHeaders().get("X-Length")).isEqualTo(List.of("7"));
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testBodyIsNotBufferedForCommentsAndStrings() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        // request.getBody() is not needed
+        logger.debug("request.body is not read")
+        request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.post("/api/test").body("content");
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getAttributes())
+              .doesNotContainKey(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testBodyIsNotBufferedIfScriptDoesNotReadIt() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig = new ScriptingFilterConfig("request");
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.post("/api/test").body("content");
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getAttributes())
+              .doesNotContainKey(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testBodyIsNotBufferedForShortCircuitBody() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (request.getFirstHeader("X-Api-Key") != "secret") {
+            return response.status(403).body("Denied")
+        }
+        request
+        """);
+    filterConfig.setMaxBodySize(4);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request =
+        MockServerHttpRequest.post("/api/test").header("X-Api-Key", "secret").body("content");
+    var exchange = MockServerWebExchange.from(request);
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getAttributes())
+              .doesNotContainKey(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testBodyTooLarge() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig = new ScriptingFilterConfig("request.getBody(); request");
+    filterConfig.setMaxBodySize(4);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    var body =
+        Flux.just("con", "tent")
+            .map(chunk -> bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    var request = MockServerHttpRequest.post("/api/test").body(body);
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.PAYLOAD_TOO_LARGE)
+        .verify();
+  }
+}
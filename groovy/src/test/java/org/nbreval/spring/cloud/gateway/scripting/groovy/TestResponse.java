@@ -1,9 +1,13 @@
 package org.nbreval.spring.cloud.gateway.scripting.groovy;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
 import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.ResponseStatusException;
@@ -38,4 +42,78 @@ public class TestResponse {
                     && e.getStatusCode() == HttpStatus.UNAUTHORIZED
                     && "Unauthorized".equals(e.getReason()));
   }
+
+  @Test
+  void testShortCircuitJsonResponse() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (request.getFirstHeader("X-Client") == "blocked") {
+            return response.status(429)
+                .header("Retry-After", 30)
+                .json([error: "Too many requests", codes: [1, 2], retry: true])
+        }
+        request
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").header("X-Client", "blocked").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.error(new IllegalStateException())))
+        .verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    assertThat(response.getHeaders().get("Retry-After")).isEqualTo(List.of("30"));
+    assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    StepVerifier.create(response.getBodyAsString())
+        .expectNext("{\"error\":\"Too many requests\",\"codes\":[1,2],\"retry\":true}")
+        .verifyComplete();
+  }
+
+  @Test
+  void testShortCircuitJsonResponseWithContentType() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        response.status(400)
+            .contentType("application/problem+json")
+            .json([title: "Bad request"])
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.error(new IllegalStateException())))
+        .verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getHeaders().getContentType())
+        .isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+    StepVerifier.create(response.getBodyAsString())
+        .expectNext("{\"title\":\"Bad request\"}")
+        .verifyComplete();
+  }
+
+  @Test
+  void testShortCircuitEmptyResponse() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig = new ScriptingFilterConfig("response.status(403)");
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.error(new IllegalStateException())))
+        .verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(response.getHeaders().getContentLength()).isZero();
+  }
 }
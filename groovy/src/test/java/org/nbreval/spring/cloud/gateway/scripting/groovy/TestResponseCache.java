@@ -0,0 +1,228 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.MicrometerScriptMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.ScriptFilterMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.cache.ResponseCache;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestResponseCache {
+
+  private static final String CACHE_SCRIPT =
+      """
+      if (request.getFirstHeader("X-Cache-Key")) {
+          request.cacheResponse(request.getFirstHeader("X-Cache-Key"), 60)
+      }
+      request
+      """;
+
+  /**
+   * Generates a filter chain which simulates an upstream service, counting its calls.
+   *
+   * @param calls Counter of calls to the upstream service.
+   * @param status Status of the upstream responses.
+   * @param delay Time the upstream service takes to respond.
+   * @return The filter chain.
+   */
+  private static GatewayFilterChain upstream(
+      AtomicInteger calls, HttpStatus status, Duration delay) {
+    return exchange ->
+        Mono.delay(delay)
+            .then(
+                Mono.defer(
+                    () -> {
+                      var response = exchange.getResponse();
+                      var body = ("response-" + calls.incrementAndGet()).getBytes();
+                      response.setStatusCode(status);
+                      response.getHeaders().set("X-Upstream", "true");
+                      return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+                    }));
+  }
+
+  /**
+   * Runs a filter with a new exchange and obtains the body of the response.
+   *
+   * @param filter Filter to run.
+   * @param chain Filter chain to continue.
+   * @param cacheKey Key of the request in the cache, or null if it's not cacheable.
+   * @return The exchange, once the filter has finished.
+   */
+  private static MockServerWebExchange runFilter(
+      GatewayFilter filter, GatewayFilterChain chain, String cacheKey) {
+    var request = MockServerHttpRequest.get("/api/test");
+
+    if (cacheKey != null) {
+      request.header("X-Cache-Key", cacheKey);
+    }
+
+    var exchange = MockServerWebExchange.from(request);
+    filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+    return exchange;
+  }
+
+  @Test
+  void testCacheHit() {
+    var filter = new GroovyScriptingFilterFactory().apply(new ScriptingFilterConfig(CACHE_SCRIPT));
+    var calls = new AtomicInteger();
+    var chain = upstream(calls, HttpStatus.OK, Duration.ZERO);
+
+    var first = runFilter(filter, chain, "a");
+    var second = runFilter(filter, chain, "a");
+    var other = runFilter(filter, chain, "b");
+    var uncached = runFilter(filter, chain, null);
+
+    assertThat(calls.get()).isEqualTo(3);
+    assertThat(first.getResponse().getBodyAsString().block()).isEqualTo("response-1");
+    assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("response-1");
+    assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(second.getResponse().getHeaders().getFirst("X-Upstream")).isEqualTo("true");
+    assertThat(second.getResponse().getHeaders().getContentLength()).isEqualTo(10);
+    assertThat(other.getResponse().getBodyAsString().block()).isEqualTo("response-2");
+    assertThat(uncached.getResponse().getBodyAsString().block()).isEqualTo("response-3");
+  }
+
+  @Test
+  void testErrorsAreNotCached() {
+    var filter = new GroovyScriptingFilterFactory().apply(new ScriptingFilterConfig(CACHE_SCRIPT));
+    var calls = new AtomicInteger();
+    var chain = upstream(calls, HttpStatus.SERVICE_UNAVAILABLE, Duration.ZERO);
+
+    runFilter(filter, chain, "a");
+    var second = runFilter(filter, chain, "a");
+
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("response-2");
+  }
+
+  @Test
+  void testCoalescedMisses() {
+    var filter = new GroovyScriptingFilterFactory().apply(new ScriptingFilterConfig(CACHE_SCRIPT));
+    var calls = new AtomicInteger();
+    var chain = upstream(calls, HttpStatus.OK, Duration.ofMillis(200));
+    var exchanges = new ArrayList<MockServerWebExchange>();
+    var executions = new ArrayList<Mono<Void>>();
+
+    for (int i = 0; i < 10; i++) {
+      var exchange =
+          MockServerWebExchange.from(
+              MockServerHttpRequest.get("/api/test").header("X-Cache-Key", "a"));
+      exchanges.add(exchange);
+      executions.add(filter.filter(exchange, chain));
+    }
+
+    Mono.when(executions).block(Duration.ofSeconds(5));
+
+    assertThat(calls.get()).isEqualTo(1);
+
+    for (var exchange : exchanges) {
+      assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("response-1");
+    }
+  }
+
+  @Test
+  void testCacheMetrics() {
+    var registry = new SimpleMeterRegistry();
+    var filterFactory = new GroovyScriptingFilterFactory();
+    filterFactory.setMetrics(new MicrometerScriptMetrics(registry));
+    var filter = filterFactory.apply(new ScriptingFilterConfig(CACHE_SCRIPT));
+    var chain = upstream(new AtomicInteger(), HttpStatus.OK, Duration.ZERO);
+
+    runFilter(filter, chain, "a");
+    runFilter(filter, chain, "a");
+    runFilter(filter, chain, "a");
+
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.RESPONSE_CACHE_REQUESTS_METER)
+                .tag("result", "miss")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry
+                .get(MicrometerScriptMetrics.RESPONSE_CACHE_REQUESTS_METER)
+                .tag("result", "hit")
+                .counter()
+                .count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void testExpiration() throws InterruptedException {
+    var cache = new ResponseCache(100, 1024 * 1024, 1024, ScriptFilterMetrics.NOOP);
+    cache.put("a", cachedResponse(10, System.nanoTime() + Duration.ofMillis(50).toNanos()));
+
+    assertThat(cache.get("a")).isNotNull();
+
+    Thread.sleep(100);
+
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void testBoundedCache() {
+    var expiresAt = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+    var cache = new ResponseCache(1000, 16 * 1024, 1024, ScriptFilterMetrics.NOOP);
+
+    for (int i = 0; i < 1000; i++) {
+      cache.put("key-" + i, cachedResponse(512, expiresAt));
+    }
+
+    assertThat(cache.bytes()).isLessThanOrEqualTo(16 * 1024);
+    assertThat(cache.size()).isLessThanOrEqualTo(32);
+    assertThat(cache.get("key-999")).isNotNull();
+
+    var smallCache = new ResponseCache(32, 1024 * 1024, 1024, ScriptFilterMetrics.NOOP);
+
+    for (int i = 0; i < 1000; i++) {
+      smallCache.put("key-" + i, cachedResponse(1, expiresAt));
+    }
+
+    assertThat(smallCache.size()).isLessThanOrEqualTo(32);
+  }
+
+  @Test
+  void testLargeResponsesAreNotCached() {
+    var filterConfig = new ScriptingFilterConfig(CACHE_SCRIPT);
+    filterConfig.setMaxBodySize(5);
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var calls = new AtomicInteger();
+    var chain = upstream(calls, HttpStatus.OK, Duration.ZERO);
+
+    runFilter(filter, chain, "a");
+    var second = runFilter(filter, chain, "a");
+
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("response-2");
+  }
+
+  /**
+   * Generates a cached response with a body of a size.
+   *
+   * @param size Size of the body.
+   * @param expiresAt Moment when the response expires.
+   * @return The cached response.
+   */
+  private static ResponseCache.CachedResponse cachedResponse(int size, long expiresAt) {
+    var body = "x".repeat(size).getBytes(StandardCharsets.UTF_8);
+    return new ResponseCache.CachedResponse(
+        HttpStatusCode.valueOf(200), new HttpHeaders(), body, expiresAt);
+  }
+}
@@ -0,0 +1,209 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyResponseScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestResponseScripting {
+
+  /**
+   * Generates a filter chain which simulates the downstream service's response.
+   *
+   * @param content Body of the response.
+   * @return The filter chain.
+   */
+  private static GatewayFilterChain upstream(String content) {
+    return (ex) -> {
+      var response = ex.getResponse();
+      response.setStatusCode(HttpStatus.OK);
+      response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+      response.getHeaders().add("X-Internal", "secret");
+      response.getHeaders().setContentLength(content.length());
+      return response.writeWith(
+          Mono.just(response.bufferFactory().wrap(content.getBytes(StandardCharsets.UTF_8))));
+    };
+  }
+
+  @Test
+  void testHeaders() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        response.removeHeader("X-Internal")
+        response.setHeader("X-Request-Id", request.getFirstHeader("X-Request-Id"))
+        response.status = 201
+        response
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/api/test").header("X-Request-Id", "1234"));
+
+    StepVerifier.create(filter.filter(exchange, upstream("{\"name\": \"test\"}"))).verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    assertThat(response.getHeaders().get("X-Internal")).isNull();
+    assertThat(response.getHeaders().get("X-Request-Id")).isEqualTo(List.of("1234"));
+    StepVerifier.create(response.getBodyAsString())
+        .expectNext("{\"name\": \"test\"}")
+        .verifyComplete();
+  }
+
+  @Test
+  void testBody() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        def body = response.getBodyAsJson()
+        response.setHeader("X-Name", body.name)
+        response.setBody("{\\"name\\": \\"${body.name.toUpperCase()}\\"}")
+        response
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, upstream("{\"name\": \"test\"}"))).verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getHeaders().get("X-Name")).isEqualTo(List.of("test"));
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(16);
+    StepVerifier.create(response.getBodyAsString())
+        .expectNext("{\"name\": \"TEST\"}")
+        .verifyComplete();
+  }
+
+  @Test
+  void testBodyOfResponseWithoutBody() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (response.getBody().length == 0) {
+            response.setStatus(200)
+            response.setBody("{\\"empty\\": true}")
+        }
+        response
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          ex.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
+          return ex.getResponse().setComplete();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    StepVerifier.create(response.getBodyAsString())
+        .expectNext("{\"empty\": true}")
+        .verifyComplete();
+  }
+
+  @Test
+  void testBodyTooLarge() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        response.setHeader("X-Length", String.valueOf(response.getBody().length))
+        response
+        """);
+    filterConfig.setMaxBodySize(4);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, upstream("{\"name\": \"test\"}")))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.BAD_GATEWAY)
+        .verify();
+  }
+
+  @Test
+  void testResponseConsumer() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (response.getFirstHeader("X-Internal") != null) {
+          response.consume(403, "Internal response")
+        }
+        response
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, upstream("{}")))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.FORBIDDEN
+                    && "Internal response".equals(responseException.getReason()))
+        .verify();
+  }
+
+  @Test
+  void testInvalidResult() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig = new ScriptingFilterConfig("null");
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, upstream("{}")))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+
+  @Test
+  void testShortCircuit() {
+    var filterFactory = new GroovyResponseScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (response.getFirstHeader("X-Internal") != null) {
+          return response.status(503).header("Retry-After", 10).body("Unavailable")
+        }
+        response
+        """);
+
+    var filter = filterFactory.apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, upstream("{\"name\": \"test\"}"))).verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThat(response.getHeaders().get("X-Internal")).isNull();
+    assertThat(response.getHeaders().get("Retry-After")).isEqualTo(List.of("10"));
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(11);
+    StepVerifier.create(response.getBodyAsString()).expectNext("Unavailable").verifyComplete();
+  }
+}
@@ -0,0 +1,73 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestScriptCompilation {
+
+  @Test
+  void testEachRouteRunsItsOwnScript() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+
+    var firstFilter =
+        filterFactory.apply(
+            new ScriptingFilterConfig(
+                """
+        request.setHeader("X-Route", "first")
+        request
+        """));
+
+    var secondFilter =
+        filterFactory.apply(
+            new ScriptingFilterConfig(
+                """
+        request.setHeader("X-Route", "second")
+        request
+        """));
+
+    GatewayFilterChain firstChain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Route")).isEqualTo(List.of("first"));
+          return Mono.empty();
+        };
+
+    GatewayFilterChain secondChain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().get("X-Route")).isEqualTo(List.of("second"));
+          return Mono.empty();
+        };
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+
+    firstFilter.filter(MockServerWebExchange.from(request), firstChain).block();
+    secondFilter.filter(MockServerWebExchange.from(request), secondChain).block();
+    firstFilter.filter(MockServerWebExchange.from(request), firstChain).block();
+  }
+
+  @Test
+  void testInvalidScriptFailsRequests() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filter = filterFactory.apply(new ScriptingFilterConfig("request.setHeader(\"X-A\""));
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+}
@@ -0,0 +1,257 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ClaimsDecoder;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptGuard;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.metrics.MicrometerScriptMetrics;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestScriptGuards {
+
+  private static final String SCRIPT =
+      """
+      request.setHeader("X-Script", "true")
+      request
+      """;
+
+  /**
+   * Runs a filter and indicates if the script has been run.
+   *
+   * @param filter Filter to run.
+   * @param request Request to filter.
+   * @return True if the request passed to the filter chain was modified by the script, else false.
+   */
+  private static boolean runsScript(GatewayFilter filter, MockServerHttpRequest request) {
+    var scriptRun = new boolean[1];
+
+    filter
+        .filter(
+            MockServerWebExchange.from(request),
+            ex -> {
+              scriptRun[0] = ex.getRequest().getHeaders().containsKey("X-Script");
+              return Mono.empty();
+            })
+        .block();
+
+    return scriptRun[0];
+  }
+
+  /**
+   * Generates a filter with guards.
+   *
+   * @param guards Guards of the filter.
+   * @return The filter.
+   */
+  private static GatewayFilter guardedFilter(ScriptGuard... guards) {
+    var filterConfig = new ScriptingFilterConfig(SCRIPT);
+    filterConfig.setGuards(List.of(guards));
+    return new GroovyScriptingFilterFactory().apply(filterConfig);
+  }
+
+  @Test
+  void testHeaderGuard() {
+    var present = new ScriptGuard();
+    present.setHeader("X-Tenant");
+    var presentFilter = guardedFilter(present);
+
+    var equals = new ScriptGuard();
+    equals.setHeader("X-Tenant");
+    equals.setValue("acme");
+    var equalsFilter = guardedFilter(equals);
+
+    assertThat(runsScript(presentFilter, MockServerHttpRequest.get("/api").build())).isFalse();
+    assertThat(
+            runsScript(
+                presentFilter, MockServerHttpRequest.get("/api").header("X-Tenant", "x").build()))
+        .isTrue();
+    assertThat(
+            runsScript(
+                equalsFilter, MockServerHttpRequest.get("/api").header("X-Tenant", "x").build()))
+        .isFalse();
+    assertThat(
+            runsScript(
+                equalsFilter, MockServerHttpRequest.get("/api").header("X-Tenant", "acme").build()))
+        .isTrue();
+  }
+
+  @Test
+  void testPathAndMethodGuards() {
+    var guard = new ScriptGuard();
+    guard.setPathPrefix("/api/v2/");
+    guard.setMethod("post");
+    var filter = guardedFilter(guard);
+
+    assertThat(runsScript(filter, MockServerHttpRequest.post("/api/v2/todos").build())).isTrue();
+    assertThat(runsScript(filter, MockServerHttpRequest.get("/api/v2/todos").build())).isFalse();
+    assertThat(runsScript(filter, MockServerHttpRequest.post("/api/v1/todos").build())).isFalse();
+  }
+
+  @Test
+  void testAllGuardsMustMatch() {
+    var methodGuard = new ScriptGuard();
+    methodGuard.setMethod("GET");
+    var headerGuard = new ScriptGuard();
+    headerGuard.setHeader("X-Tenant");
+    var filter = guardedFilter(methodGuard, headerGuard);
+
+    assertThat(runsScript(filter, MockServerHttpRequest.get("/api").build())).isFalse();
+    assertThat(
+            runsScript(filter, MockServerHttpRequest.get("/api").header("X-Tenant", "x").build()))
+        .isTrue();
+  }
+
+  @Test
+  void testClaimGuard() throws JOSEException {
+    for (var claimsDecoder : ClaimsDecoder.values()) {
+      var guard = new ScriptGuard();
+      guard.setClaim("user_context.id");
+      var filterConfig = new ScriptingFilterConfig(SCRIPT);
+      filterConfig.setGuards(List.of(guard));
+      filterConfig.setClaimsDecoder(claimsDecoder);
+      var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+
+      assertThat(
+              runsScript(
+                  filter,
+                  MockServerHttpRequest.get("/api")
+                      .header("Authorization", "Bearer " + token(Map.of("id", "user-123")))
+                      .build()))
+          .isTrue();
+      assertThat(
+              runsScript(
+                  filter,
+                  MockServerHttpRequest.get("/api")
+                      .header("Authorization", "Bearer " + token(Map.of("name", "user")))
+                      .build()))
+          .isFalse();
+      assertThat(runsScript(filter, MockServerHttpRequest.get("/api").build())).isFalse();
+    }
+  }
+
+  @Test
+  void testClaimGuardSharesWrapper() throws JOSEException {
+    var guard = new ScriptGuard();
+    guard.setClaim("user_context.id");
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-User", request.getClaim("user_context.id"))
+        request
+        """);
+    filterConfig.setGuards(List.of(guard));
+    filterConfig.setTokenCacheMaxEntries(48);
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/api")
+                .header("Authorization", "Bearer " + token(Map.of("id", "user-123"))));
+    var user = new String[1];
+
+    filter
+        .filter(
+            exchange,
+            ex -> {
+              user[0] = ex.getRequest().getHeaders().getFirst("X-User");
+              return Mono.empty();
+            })
+        .block();
+
+    var cache = TokenManager.getClaimsCache(48, filterConfig.getTokenCacheTimeToLive());
+    assertThat(user[0]).isEqualTo("user-123");
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isZero();
+  }
+
+  @Test
+  void testSkippedRequestsDontBufferBody() {
+    var guard = new ScriptGuard();
+    guard.setHeader("X-Inspect");
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Size", String.valueOf(request.getBody().length))
+        request
+        """);
+    filterConfig.setGuards(List.of(guard));
+    filterConfig.setMaxBodySize(4);
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var skipped = MockServerWebExchange.from(MockServerHttpRequest.post("/api").body("large body"));
+    var inspected =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.post("/api").header("X-Inspect", "true").body("large body"));
+
+    StepVerifier.create(filter.filter(skipped, ex -> Mono.empty())).verifyComplete();
+    StepVerifier.create(filter.filter(inspected, ex -> Mono.empty()))
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+
+  @Test
+  void testSkippedMetrics() {
+    var registry = new SimpleMeterRegistry();
+    var filterFactory = new GroovyScriptingFilterFactory();
+    filterFactory.setMetrics(new MicrometerScriptMetrics(registry));
+
+    var guard = new ScriptGuard();
+    guard.setMethod("POST");
+    var filterConfig = new ScriptingFilterConfig(SCRIPT);
+    filterConfig.setGuards(List.of(guard));
+    var filter = filterFactory.apply(filterConfig);
+
+    runsScript(filter, MockServerHttpRequest.get("/api").build());
+    runsScript(filter, MockServerHttpRequest.post("/api").build());
+
+    assertThat(registry.get(MicrometerScriptMetrics.SKIPPED_METER).counter().count()).isEqualTo(1);
+    assertThat(registry.get(MicrometerScriptMetrics.EXECUTION_METER).timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void testInvalidGuard() {
+    var guard = new ScriptGuard();
+    guard.setValue("acme");
+    var filter = guardedFilter(guard);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+
+  /**
+   * Generates a JWT with a user context claim.
+   *
+   * @param userContext Value of the user context claim.
+   * @return The JWT, as a string.
+   * @throws JOSEException If occurs any exception during token generation.
+   */
+  private static String token(Map<String, Object> userContext) throws JOSEException {
+    var claimsSet =
+        new JWTClaimsSet.Builder().subject("test").claim("user_context", userContext).build();
+
+    var signer = new MACSigner("8c423e0120437e570427de7a1235d5a57f0091c558ea8f6fd4ae595a351fda12");
+    var signedJwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claimsSet);
+    signedJwt.sign(signer);
+
+    return signedJwt.serialize();
+  }
+}
@@ -0,0 +1,178 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyResponseScriptingFilterFactory;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestScriptPipeline {
+
+  /**
+   * Generates the configuration of a pipeline.
+   *
+   * @param scripts Scripts of the stages, in order.
+   * @return The configuration of the filter.
+   */
+  private static ScriptingFilterConfig pipeline(String... scripts) {
+    var filterConfig = new ScriptingFilterConfig();
+    filterConfig.setScripts(List.of(scripts));
+    return filterConfig;
+  }
+
+  @Test
+  void testStagesShareRequest() {
+    var filter =
+        new GroovyScriptingFilterFactory()
+            .apply(
+                pipeline(
+                    """
+                    request.setHeader("X-Stage", "1")
+                    request
+                    """,
+                    """
+                    request.setHeader("X-Stage", request.getFirstHeader("X-Stage") + ",2")
+                    request.setQueryParam("stage", 2)
+                    request
+                    """,
+                    """
+                    request.setHeader("X-Stage", request.getFirstHeader("X-Stage") + ",3")
+                    request
+                    """));
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+    var chainCalls = new AtomicInteger();
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          chainCalls.incrementAndGet();
+          assertThat(ex.getRequest().getHeaders().get("X-Stage")).isEqualTo(List.of("1,2,3"));
+          assertThat(ex.getRequest().getQueryParams().getFirst("stage")).isEqualTo("2");
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+    assertThat(chainCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  void testShortCircuitStopsPipeline() {
+    var filter =
+        new GroovyScriptingFilterFactory()
+            .apply(
+                pipeline(
+                    """
+                    if (request.getFirstHeader("X-Api-Key") != "secret") {
+                        return response.status(401).body("Unauthorized")
+                    }
+                    request
+                    """,
+                    """
+                    throw new IllegalStateException("Must not run")
+                    """));
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.error(new IllegalStateException())))
+        .verifyComplete();
+    assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("Unauthorized");
+  }
+
+  @Test
+  void testStaticPipeline() {
+    var filterConfig =
+        pipeline(
+            """
+            request.setHeader("X-First", "true")
+            request
+            """,
+            """
+            request.setHeader("X-Second", request.getFirstHeader("X-First"))
+            request
+            """);
+    filterConfig.setCompileStatic(true);
+    filterConfig.setScriptPoolSize(4);
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          assertThat(ex.getRequest().getHeaders().getFirst("X-Second")).isEqualTo("true");
+          return Mono.empty();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+
+  @Test
+  void testResponsePipeline() {
+    var filter =
+        new GroovyResponseScriptingFilterFactory()
+            .apply(
+                pipeline(
+                    """
+                    response.removeHeader("X-Internal")
+                    response
+                    """,
+                    """
+                    response.setHeader("X-Stage", "2")
+                    response
+                    """));
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          ex.getResponse().getHeaders().set("X-Internal", "true");
+          return ex.getResponse().setComplete();
+        };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+    assertThat(exchange.getResponse().getHeaders().containsKey("X-Internal")).isFalse();
+    assertThat(exchange.getResponse().getHeaders().getFirst("X-Stage")).isEqualTo("2");
+  }
+
+  @Test
+  void testAsyncResultBeforeLastStage() {
+    var filter =
+        new GroovyScriptingFilterFactory()
+            .apply(
+                pipeline(
+                    """
+                    reactor.core.publisher.Mono.just(request)
+                    """,
+                    """
+                    request
+                    """));
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+
+  @Test
+  void testScriptAndPipeline() {
+    var filterConfig = pipeline("request");
+    filterConfig.setScriptOrPath("request");
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+}
@@ -0,0 +1,72 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestScriptPool {
+
+  @Test
+  void testPooledScriptKeepsResults() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-TestHeader", request.getFirstHeader("X-Input"))
+        return request
+        """);
+    filterConfig.setScriptPoolSize(1);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    for (var value : List.of("A", "B", "C")) {
+      var request = MockServerHttpRequest.get("/api/test").header("X-Input", value).build();
+      var exchange = MockServerWebExchange.from(request);
+
+      GatewayFilterChain chain =
+          (ex) -> {
+            assertThat(ex.getRequest().getHeaders().get("X-TestHeader")).isEqualTo(List.of(value));
+            return Mono.empty();
+          };
+
+      filter.filter(exchange, chain).block();
+    }
+  }
+
+  @Test
+  void testPooledScriptDoesNotLeakVariables() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        if (binding.hasVariable("previous")) {
+            request.setHeader("X-Leak", "true")
+        }
+        previous = request
+        return request
+        """);
+    filterConfig.setScriptPoolSize(1);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    for (int i = 0; i < 3; i++) {
+      var request = MockServerHttpRequest.get("/api/test").build();
+      var exchange = MockServerWebExchange.from(request);
+
+      GatewayFilterChain chain =
+          (ex) -> {
+            assertThat(ex.getRequest().getHeaders().get("X-Leak")).isNull();
+            return Mono.empty();
+          };
+
+      filter.filter(exchange, chain).block();
+    }
+  }
+}
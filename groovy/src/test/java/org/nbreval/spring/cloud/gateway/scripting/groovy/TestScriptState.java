@@ -0,0 +1,175 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.state.ScriptState;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestScriptState {
+
+  private static final String COUNTER_SCRIPT =
+      """
+      state.increment("requests")
+      request.setHeader("X-Requests", String.valueOf(state.count("requests")))
+      request
+      """;
+
+  /**
+   * Runs a filter and obtains a header of the request passed to the filter chain.
+   *
+   * @param filter Filter to run.
+   * @param header Header to obtain.
+   * @return The value of the header.
+   */
+  private static String runFilter(GatewayFilter filter, String header) {
+    var value = new String[1];
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    GatewayFilterChain chain =
+        (ex) -> {
+          value[0] = ex.getRequest().getHeaders().getFirst(header);
+          return Mono.empty();
+        };
+
+    filter.filter(exchange, chain).block();
+    return value[0];
+  }
+
+  @Test
+  void testStateIsSharedByRouteRequests() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var firstRoute = filterFactory.apply(new ScriptingFilterConfig(COUNTER_SCRIPT));
+    var secondRoute = filterFactory.apply(new ScriptingFilterConfig(COUNTER_SCRIPT));
+
+    assertThat(runFilter(firstRoute, "X-Requests")).isEqualTo("1");
+    assertThat(runFilter(firstRoute, "X-Requests")).isEqualTo("2");
+    assertThat(runFilter(secondRoute, "X-Requests")).isEqualTo("1");
+  }
+
+  @Test
+  void testStaticScriptState() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        def previous = state.putIfAbsent("first", "yes")
+        request.setHeader("X-First", previous == null ? "true" : "false")
+        request
+        """);
+    filterConfig.setCompileStatic(true);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    assertThat(runFilter(filter, "X-First")).isEqualTo("true");
+    assertThat(runFilter(filter, "X-First")).isEqualTo("false");
+  }
+
+  @Test
+  void testConcurrentCounters() throws Exception {
+    var state = new ScriptState(100);
+
+    try (var executor = Executors.newFixedThreadPool(8)) {
+      var futures = new ArrayList<Future<?>>();
+
+      for (int i = 0; i < 8; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int j = 0; j < 10000; j++) {
+                    state.increment("hits");
+                    state.add("bytes", 2);
+                  }
+                }));
+      }
+
+      for (var future : futures) {
+        future.get();
+      }
+    }
+
+    assertThat(state.count("hits")).isEqualTo(80000);
+    assertThat(state.count("bytes")).isEqualTo(160000);
+    assertThat(state.resetCounter("hits")).isEqualTo(80000);
+    assertThat(state.count("hits")).isZero();
+    assertThat(state.count("unknown")).isZero();
+  }
+
+  @Test
+  void testCompareAndSet() {
+    var state = new ScriptState(100);
+
+    assertThat(state.compareAndSet("leader", null, "node-1")).isTrue();
+    assertThat(state.compareAndSet("leader", null, "node-2")).isFalse();
+    assertThat(state.compareAndSet("leader", "node-1", "node-2")).isTrue();
+    assertThat(state.get("leader")).isEqualTo("node-2");
+    assertThat(state.compareAndSet("leader", "node-2", null)).isTrue();
+    assertThat(state.get("leader")).isNull();
+  }
+
+  @Test
+  void testTimeToLive() throws InterruptedException {
+    var state = new ScriptState(100);
+    state.put("token", "abc", Duration.ofMillis(50));
+    state.put("permanent", "xyz");
+
+    assertThat(state.get("token")).isEqualTo("abc");
+    assertThat(state.putIfAbsent("token", "def", Duration.ofMillis(50))).isEqualTo("abc");
+
+    Thread.sleep(100);
+
+    assertThat(state.get("token")).isNull();
+    assertThat(state.putIfAbsent("token", "def")).isNull();
+    assertThat(state.get("token")).isEqualTo("def");
+    assertThat(state.get("permanent")).isEqualTo("xyz");
+  }
+
+  @Test
+  void testMaxEntries() throws InterruptedException {
+    var state = new ScriptState(10);
+
+    for (int i = 0; i < 5; i++) {
+      state.put("expiring-" + i, i, Duration.ofMillis(10));
+    }
+
+    Thread.sleep(50);
+
+    for (int i = 0; i < 100; i++) {
+      state.put("key-" + i, i);
+      state.increment("counter-" + i);
+    }
+
+    assertThat(state.size()).isLessThanOrEqualTo(10);
+    assertThat(state.get("key-99")).isEqualTo(99);
+    assertThat(state.get("expiring-0")).isNull();
+    assertThat(state.count("counter-99")).isEqualTo(1);
+  }
+
+  @Test
+  void testEvictionFreesBatch() {
+    var state = new ScriptState(160);
+
+    for (int i = 0; i <= 160; i++) {
+      state.put("key-" + i, i);
+    }
+
+    assertThat(state.size()).isEqualTo(150);
+    assertThat(state.get("key-160")).isEqualTo(160);
+
+    for (int i = 161; i < 170; i++) {
+      state.put("key-" + i, i);
+    }
+
+    assertThat(state.size()).isEqualTo(159);
+  }
+}
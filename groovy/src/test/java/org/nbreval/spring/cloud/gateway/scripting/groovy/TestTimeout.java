@@ -0,0 +1,140 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptExecutionMode;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestTimeout {
+
+  @Test
+  void testInfiniteLoopIsInterrupted() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        while (true) {
+            request.getFirstHeader("X-TestHeader")
+        }
+        request
+        """);
+    filterConfig.setTimeout(Duration.ofMillis(100));
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.GATEWAY_TIMEOUT)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testBlockedScriptUsesTimeoutStatus() {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        Thread.sleep(10000)
+        request
+        """);
+    filterConfig.setTimeout(Duration.ofMillis(100));
+    filterConfig.setTimeoutStatus(503);
+    filterConfig.setExecutionMode(ScriptExecutionMode.VIRTUAL_THREAD);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testInvalidTimeoutStatus() {
+    var filterConfig = new ScriptingFilterConfig("request");
+    filterConfig.setTimeoutStatus(200);
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testPipelineTimeout() {
+    var filterConfig = new ScriptingFilterConfig();
+    filterConfig.setScripts(
+        List.of(
+            "Thread.sleep(150)\nrequest",
+            "Thread.sleep(150)\nrequest",
+            "throw new IllegalStateException(\"Must not run\")"));
+    filterConfig.setTimeout(Duration.ofMillis(200));
+
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            throwable ->
+                throwable instanceof ResponseStatusException e
+                    && e.getStatusCode() == HttpStatus.GATEWAY_TIMEOUT)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testScriptWithPoolAndTimeout() throws InterruptedException {
+    var filterFactory = new GroovyScriptingFilterFactory();
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        for (int i = 0; i < 10; i++) {
+            request.setHeader("X-TestHeader", String.valueOf(i))
+        }
+        request
+        """);
+    filterConfig.setTimeout(Duration.ofSeconds(1));
+    filterConfig.setScriptPoolSize(1);
+
+    var filter = filterFactory.apply(filterConfig);
+
+    for (int i = 0; i < 2; i++) {
+      var request = MockServerHttpRequest.get("/api/test").build();
+      var exchange = MockServerWebExchange.from(request);
+
+      GatewayFilterChain chain =
+          (ex) -> {
+            assertThat(ex.getRequest().getHeaders().get("X-TestHeader")).isEqualTo(List.of("9"));
+            return Mono.empty();
+          };
+
+      StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+      Thread.sleep(1100);
+    }
+  }
+}
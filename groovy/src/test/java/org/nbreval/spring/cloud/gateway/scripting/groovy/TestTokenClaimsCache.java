@@ -0,0 +1,144 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenClaimsCache;
+import org.nbreval.spring.cloud.gateway.scripting.core.util.auth.TokenManager;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class TestTokenClaimsCache {
+
+  @Test
+  void testClaimsAreParsedOnce() throws JOSEException, ParseException {
+    var token = getTestToken("cached", new Date(System.currentTimeMillis() + 60_000));
+
+    var first = TokenManager.getTokenClaims(token);
+    var second = TokenManager.getTokenClaims(token);
+
+    assertThat(second).isSameAs(first);
+    assertThat(second.get("sub")).isEqualTo("cached");
+  }
+
+  @Test
+  void testHitsAndMisses() {
+    var cache = new TokenClaimsCache(100, Duration.ofMinutes(5));
+
+    assertThat(cache.get("token")).isNull();
+    cache.put("token", Map.of("sub", "test"));
+    assertThat(cache.get("token")).isEqualTo(Map.of("sub", "test"));
+
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testExpiredTokensAreNotCached() {
+    var cache = new TokenClaimsCache(100, Duration.ofMinutes(5));
+
+    cache.put("token", Map.of("exp", new Date(System.currentTimeMillis() - 1000)));
+
+    assertThat(cache.get("token")).isNull();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void testEntriesExpireAfterMaxTimeToLive() throws InterruptedException {
+    var cache = new TokenClaimsCache(100, Duration.ofMillis(50));
+
+    cache.put("token", Map.of("sub", "test"));
+    Thread.sleep(100);
+
+    assertThat(cache.get("token")).isNull();
+  }
+
+  @Test
+  void testSizeIsBounded() {
+    var cache = new TokenClaimsCache(64, Duration.ofMinutes(5));
+
+    for (int i = 0; i < 10_000; i++) {
+      cache.put("token-" + i, Map.of("sub", "test"));
+    }
+
+    assertThat(cache.size()).isLessThanOrEqualTo(64);
+    assertThat(cache.get("token-9999")).isNotNull();
+  }
+
+  @Test
+  void testCachedClaimsAreImmutable() {
+    var cache = new TokenClaimsCache(100, Duration.ofMinutes(5));
+    var nested = new HashMap<String, Object>();
+    nested.put("roles", new ArrayList<>(List.of("admin")));
+    nested.put("tenant", null);
+    var claims = new HashMap<String, Object>();
+    claims.put("user", nested);
+
+    cache.put("token", claims);
+    var cached = cache.get("token");
+
+    assertThat(cached).isEqualTo(claims);
+    assertThatThrownBy(() -> cached.put("sub", "other"))
+        .isInstanceOf(UnsupportedOperationException.class);
+
+    @SuppressWarnings("unchecked")
+    var user = (Map<String, Object>) cached.get("user");
+    @SuppressWarnings("unchecked")
+    var roles = (List<Object>) user.get("roles");
+
+    assertThatThrownBy(() -> user.put("tenant", "other"))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> roles.add("root")).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void testFilterCacheSettings() throws JOSEException {
+    var token = getTestToken("configured", new Date(System.currentTimeMillis() + 60_000));
+    var filterConfig =
+        new ScriptingFilterConfig(
+            """
+        request.setHeader("X-Subject", request.getClaim("sub"))
+        request
+        """);
+    filterConfig.setTokenCacheMaxEntries(32);
+    filterConfig.setTokenCacheTimeToLive(Duration.ofMinutes(1));
+    var filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+
+    var exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/api/test").header("Authorization", "Bearer " + token));
+    filter.filter(exchange, ex -> Mono.empty()).block();
+
+    var cache = TokenManager.getClaimsCache(32, Duration.ofMinutes(1));
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(TokenManager.getClaimsCaches()).contains(cache, TokenManager.getClaimsCache());
+  }
+
+  private String getTestToken(String subject, Date expiration) throws JOSEException {
+    var claimsSet = new JWTClaimsSet.Builder().subject(subject).expirationTime(expiration).build();
+
+    var signer = new MACSigner("8c423e0120437e570427de7a1235d5a57f0091c558ea8f6fd4ae595a351fda12");
+    var signedJwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claimsSet);
+    signedJwt.sign(signer);
+
+    return signedJwt.serialize();
+  }
+}
@@ -0,0 +1,122 @@
+package org.nbreval.spring.cloud.gateway.scripting.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nbreval.spring.cloud.gateway.scripting.core.config.ScriptingFilterConfig;
+import org.nbreval.spring.cloud.gateway.scripting.groovy.filter.GroovyScriptingFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TestVerifiedClaims {
+
+  private static final String SCRIPT =
+      """
+      request.setHeader("X-Subject", String.valueOf(request.getVerifiedClaim("sub")))
+      request
+      """;
+
+  private RSAKey key;
+
+  private GatewayFilter filter;
+
+  @BeforeEach
+  void setUp(@TempDir Path directory) throws JOSEException, IOException {
+    key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+
+    var jwksFile = directory.resolve("jwks.json");
+    Files.writeString(jwksFile, new JWKSet(key.toPublicJWK()).toString());
+
+    var filterConfig = new ScriptingFilterConfig(SCRIPT);
+    filterConfig.setJwksLocation(jwksFile.toString());
+    filter = new GroovyScriptingFilterFactory().apply(filterConfig);
+  }
+
+  @Test
+  void testValidToken() throws JOSEException {
+    var token = getToken(key, new Date(System.currentTimeMillis() + 60_000));
+
+    assertThat(getSubject(filter, token)).isEqualTo("test");
+    assertThat(getSubject(filter, token)).isEqualTo("test");
+  }
+
+  @Test
+  void testTokenSignedWithOtherKey() throws JOSEException {
+    var otherKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+    var token = getToken(otherKey, new Date(System.currentTimeMillis() + 60_000));
+
+    assertThat(getSubject(filter, token)).isEqualTo("null");
+  }
+
+  @Test
+  void testExpiredToken() throws JOSEException {
+    var token = getToken(key, new Date(System.currentTimeMillis() - 3_600_000));
+
+    assertThat(getSubject(filter, token)).isEqualTo("null");
+  }
+
+  @Test
+  void testVerifiedClaimsWithoutJwks() {
+    var filter = new GroovyScriptingFilterFactory().apply(new ScriptingFilterConfig(SCRIPT));
+
+    var request = MockServerHttpRequest.get("/api/test").build();
+    var exchange = MockServerWebExchange.from(request);
+
+    StepVerifier.create(filter.filter(exchange, ex -> Mono.empty()))
+        .expectErrorMatches(
+            e ->
+                e instanceof ResponseStatusException responseException
+                    && responseException.getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR)
+        .verify();
+  }
+
+  private static String getSubject(GatewayFilter filter, String token) {
+    var request =
+        MockServerHttpRequest.get("/api/test").header("Authorization", "Bearer " + token).build();
+    var exchange = MockServerWebExchange.from(request);
+    var subject = new AtomicReference<String>();
+
+    filter
+        .filter(
+            exchange,
+            ex -> {
+              subject.set(ex.getRequest().getHeaders().getFirst("X-Subject"));
+              return Mono.empty();
+            })
+        .block();
+
+    return subject.get();
+  }
+
+  private static String getToken(RSAKey signingKey, Date expiration) throws JOSEException {
+    var claimsSet = new JWTClaimsSet.Builder().subject("test").expirationTime(expiration).build();
+    var signedJwt =
+        new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(),
+            claimsSet);
+    signedJwt.sign(new RSASSASigner(signingKey));
+
+    return signedJwt.serialize();
+  }
+}
@@ -0,0 +1,2 @@
+request.setHeader("X-Precompiled", "true")
+request
@@ -5,3 +5,6 @@ project(":core").name = "gateway-scripting-core"
 
 include("groovy")
 project(":groovy").name = "gateway-scripting-groovy"
+
+include("benchmarks")
+project(":benchmarks").name = "gateway-scripting-benchmarks"